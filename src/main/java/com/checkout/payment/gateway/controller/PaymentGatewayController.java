@@ -1,9 +1,15 @@
 package com.checkout.payment.gateway.controller;
 
 import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.model.PaymentOperationRequest;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
 import com.checkout.payment.gateway.model.PostPaymentRequest;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.ReconciliationReport;
 import com.checkout.payment.gateway.service.PaymentGatewayService;
+import com.checkout.payment.gateway.service.PaymentStatisticsService;
+import com.checkout.payment.gateway.service.SettlementReconciliationService;
+import com.checkout.payment.gateway.traffic.TrafficCaptureService;
 import jakarta.validation.Valid;
 import java.util.UUID;
 import org.springframework.http.HttpStatus;
@@ -12,28 +18,81 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController("api")
 public class PaymentGatewayController {
 
   private final PaymentGatewayService paymentGatewayService;
+  private final PaymentStatisticsService paymentStatisticsService;
+  private final TrafficCaptureService trafficCaptureService;
+  private final SettlementReconciliationService settlementReconciliationService;
 
-  public PaymentGatewayController(PaymentGatewayService paymentGatewayService) {
+  public PaymentGatewayController(PaymentGatewayService paymentGatewayService,
+      PaymentStatisticsService paymentStatisticsService,
+      TrafficCaptureService trafficCaptureService,
+      SettlementReconciliationService settlementReconciliationService) {
     this.paymentGatewayService = paymentGatewayService;
+    this.paymentStatisticsService = paymentStatisticsService;
+    this.trafficCaptureService = trafficCaptureService;
+    this.settlementReconciliationService = settlementReconciliationService;
   }
 
   @GetMapping("/payment/{id}")
   public ResponseEntity<PostPaymentResponse> getPostPaymentEventById(@PathVariable UUID id) {
-    return new ResponseEntity<>(paymentGatewayService.getPaymentById(id), HttpStatus.OK);
+    long arrivalNanos = System.nanoTime();
+    try {
+      PostPaymentResponse payment = paymentGatewayService.getPaymentById(id);
+      trafficCaptureService.recordGet(arrivalNanos, id, HttpStatus.OK.value(), payment);
+      return new ResponseEntity<>(payment, HttpStatus.OK);
+    } catch (EventProcessingException e) {
+      trafficCaptureService.recordGet(arrivalNanos, id, HttpStatus.NOT_FOUND.value(), null);
+      throw e;
+    }
+  }
+
+  @PostMapping("/payment/{id}/capture")
+  public ResponseEntity<PostPaymentResponse> capturePayment(@PathVariable UUID id,
+      @RequestBody(required = false) PaymentOperationRequest request) {
+    Integer amount = request != null ? request.getAmount() : null;
+    return new ResponseEntity<>(paymentGatewayService.capturePayment(id, amount), HttpStatus.OK);
+  }
+
+  @PostMapping("/payment/{id}/void")
+  public ResponseEntity<PostPaymentResponse> voidPayment(@PathVariable UUID id) {
+    return new ResponseEntity<>(paymentGatewayService.voidPayment(id), HttpStatus.OK);
+  }
+
+  @PostMapping("/payment/{id}/refund")
+  public ResponseEntity<PostPaymentResponse> refundPayment(@PathVariable UUID id,
+      @RequestBody(required = false) PaymentOperationRequest request) {
+    Integer amount = request != null ? request.getAmount() : null;
+    return new ResponseEntity<>(paymentGatewayService.refundPayment(id, amount), HttpStatus.OK);
+  }
+
+  @GetMapping("/stats")
+  public ResponseEntity<PaymentStatisticsResponse> getPaymentStatistics() {
+    return new ResponseEntity<>(paymentStatisticsService.getStatistics(), HttpStatus.OK);
+  }
+
+  @PostMapping("/reconciliation")
+  public ResponseEntity<ReconciliationReport> reconcileSettlementFile(
+      @RequestParam String file) {
+    return new ResponseEntity<>(settlementReconciliationService.reconcile(file), HttpStatus.OK);
   }
 
   @PostMapping
   public ResponseEntity<PostPaymentResponse> processPayment(@Valid @RequestBody PostPaymentRequest paymentRequest) {
+    long arrivalNanos = System.nanoTime();
     try {
       PostPaymentResponse response = paymentGatewayService.processPayment(paymentRequest);
+      trafficCaptureService.recordPayment(arrivalNanos, paymentRequest, HttpStatus.OK.value(),
+          response);
       return ResponseEntity.ok(response);
     } catch (EventProcessingException e) {
+      trafficCaptureService.recordPayment(arrivalNanos, paymentRequest,
+          HttpStatus.BAD_REQUEST.value(), null);
       // Return 400 Bad Request for rejected payments
       return ResponseEntity.badRequest().build();
     }
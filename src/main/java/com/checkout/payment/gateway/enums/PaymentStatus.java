@@ -5,7 +5,12 @@ import com.fasterxml.jackson.annotation.JsonValue;
 public enum PaymentStatus {
   AUTHORIZED("Authorized"),
   DECLINED("Declined"),
-  REJECTED("Rejected");
+  REJECTED("Rejected"),
+  PARTIALLY_CAPTURED("Partially Captured"),
+  CAPTURED("Captured"),
+  VOIDED("Voided"),
+  PARTIALLY_REFUNDED("Partially Refunded"),
+  REFUNDED("Refunded");
 
   private final String name;
 
@@ -19,4 +19,16 @@ public class CommonExceptionHandler {
     return new ResponseEntity<>(new ErrorResponse("Page not found"),
         HttpStatus.NOT_FOUND);
   }
+
+  @ExceptionHandler(PaymentLifecycleException.class)
+  public ResponseEntity<ErrorResponse> handleException(PaymentLifecycleException ex) {
+    LOG.warn("Payment lifecycle operation refused: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT);
+  }
+
+  @ExceptionHandler(ReconciliationInProgressException.class)
+  public ResponseEntity<ErrorResponse> handleException(ReconciliationInProgressException ex) {
+    LOG.warn("Settlement reconciliation refused: {}", ex.getMessage());
+    return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT);
+  }
 }
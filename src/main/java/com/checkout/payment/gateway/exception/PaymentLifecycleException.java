@@ -0,0 +1,8 @@
+package com.checkout.payment.gateway.exception;
+
+public class PaymentLifecycleException extends RuntimeException {
+
+  public PaymentLifecycleException(String message) {
+    super(message);
+  }
+}
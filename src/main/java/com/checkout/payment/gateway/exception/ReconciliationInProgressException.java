@@ -0,0 +1,8 @@
+package com.checkout.payment.gateway.exception;
+
+public class ReconciliationInProgressException extends RuntimeException {
+
+  public ReconciliationInProgressException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,52 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.Map;
+
+public class AggregateStatistics {
+  private String volumeCurrency;
+  private Map<String, StatusStatistics> statuses;
+  private Double approvalRate;
+  private Map<String, Double> windowApprovalRates;
+
+  public String getVolumeCurrency() {
+    return volumeCurrency;
+  }
+
+  public void setVolumeCurrency(String volumeCurrency) {
+    this.volumeCurrency = volumeCurrency;
+  }
+
+  public Map<String, StatusStatistics> getStatuses() {
+    return statuses;
+  }
+
+  public void setStatuses(Map<String, StatusStatistics> statuses) {
+    this.statuses = statuses;
+  }
+
+  public Double getApprovalRate() {
+    return approvalRate;
+  }
+
+  public void setApprovalRate(Double approvalRate) {
+    this.approvalRate = approvalRate;
+  }
+
+  public Map<String, Double> getWindowApprovalRates() {
+    return windowApprovalRates;
+  }
+
+  public void setWindowApprovalRates(Map<String, Double> windowApprovalRates) {
+    this.windowApprovalRates = windowApprovalRates;
+  }
+
+  @Override
+  public String toString() {
+    return "AggregateStatistics{" +
+        "volumeCurrency='" + volumeCurrency + '\'' +
+        ", statuses=" + statuses +
+        ", approvalRate=" + approvalRate +
+        ", windowApprovalRates=" + windowApprovalRates +
+        '}';
+  }
+}
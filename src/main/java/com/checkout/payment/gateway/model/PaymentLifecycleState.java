@@ -0,0 +1,38 @@
+package com.checkout.payment.gateway.model;
+
+/**
+ * Packs the mutable part of a payment's lifecycle into a single {@code long} so that a capture,
+ * void or refund can be applied with one compare-and-set.
+ *
+ * <p>Bits 0-30 hold the captured amount, bits 31-61 the refunded amount and bit 62 the voided
+ * flag. Amounts are non-negative {@code int} minor units, so 31 bits each is enough.
+ */
+public final class PaymentLifecycleState {
+
+  public static final long INITIAL = 0L;
+
+  private static final int AMOUNT_BITS = 31;
+  private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+  private static final long VOIDED_BIT = 1L << (2 * AMOUNT_BITS);
+
+  private PaymentLifecycleState() {
+  }
+
+  public static long of(int capturedAmount, int refundedAmount, boolean voided) {
+    return (capturedAmount & AMOUNT_MASK)
+        | ((refundedAmount & AMOUNT_MASK) << AMOUNT_BITS)
+        | (voided ? VOIDED_BIT : 0L);
+  }
+
+  public static int capturedAmount(long state) {
+    return (int) (state & AMOUNT_MASK);
+  }
+
+  public static int refundedAmount(long state) {
+    return (int) ((state >>> AMOUNT_BITS) & AMOUNT_MASK);
+  }
+
+  public static boolean isVoided(long state) {
+    return (state & VOIDED_BIT) != 0;
+  }
+}
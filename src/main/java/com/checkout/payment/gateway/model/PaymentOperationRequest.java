@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+
+public class PaymentOperationRequest implements Serializable {
+
+  // Optional; when absent the full remaining capturable or refundable amount is used
+  @JsonProperty("amount")
+  private Integer amount;
+
+  public Integer getAmount() {
+    return amount;
+  }
+
+  public void setAmount(Integer amount) {
+    this.amount = amount;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentOperationRequest{" +
+        "amount=" + amount +
+        '}';
+  }
+}
@@ -0,0 +1,42 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.Map;
+
+public class PaymentStatisticsResponse {
+  private AggregateStatistics total;
+  private Map<String, AggregateStatistics> currencies;
+  private Map<String, AggregateStatistics> cardBuckets;
+
+  public AggregateStatistics getTotal() {
+    return total;
+  }
+
+  public void setTotal(AggregateStatistics total) {
+    this.total = total;
+  }
+
+  public Map<String, AggregateStatistics> getCurrencies() {
+    return currencies;
+  }
+
+  public void setCurrencies(Map<String, AggregateStatistics> currencies) {
+    this.currencies = currencies;
+  }
+
+  public Map<String, AggregateStatistics> getCardBuckets() {
+    return cardBuckets;
+  }
+
+  public void setCardBuckets(Map<String, AggregateStatistics> cardBuckets) {
+    this.cardBuckets = cardBuckets;
+  }
+
+  @Override
+  public String toString() {
+    return "PaymentStatisticsResponse{" +
+        "total=" + total +
+        ", currencies=" + currencies +
+        ", cardBuckets=" + cardBuckets +
+        '}';
+  }
+}
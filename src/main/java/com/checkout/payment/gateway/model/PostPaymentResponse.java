@@ -1,9 +1,23 @@
 package com.checkout.payment.gateway.model;
 
 import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.UUID;
 
 public class PostPaymentResponse {
+  private static final VarHandle LIFECYCLE_STATE;
+
+  static {
+    try {
+      LIFECYCLE_STATE = MethodHandles.lookup()
+          .findVarHandle(PostPaymentResponse.class, "lifecycleState", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   private UUID id;
   private PaymentStatus status;
   private String cardNumberLastFour;
@@ -11,6 +25,13 @@ public class PostPaymentResponse {
   private int expiryYear;
   private String currency;
   private int amount;
+  private String settlementCurrency;
+  private Long settlementAmount;
+  @JsonIgnore
+  private String authorizationCode;
+  // Captured/refunded amounts and void flag, see PaymentLifecycleState
+  @JsonIgnore
+  private volatile long lifecycleState = PaymentLifecycleState.INITIAL;
 
 
   public UUID getId() {
@@ -22,6 +43,27 @@ public class PostPaymentResponse {
   }
 
   public PaymentStatus getStatus() {
+    if (status != PaymentStatus.AUTHORIZED) {
+      return status;
+    }
+    long state = lifecycleState;
+    int captured = PaymentLifecycleState.capturedAmount(state);
+    int refunded = PaymentLifecycleState.refundedAmount(state);
+    if (PaymentLifecycleState.isVoided(state)) {
+      return PaymentStatus.VOIDED;
+    }
+    if (refunded > 0) {
+      return refunded == captured ? PaymentStatus.REFUNDED : PaymentStatus.PARTIALLY_REFUNDED;
+    }
+    if (captured > 0) {
+      return captured == amount ? PaymentStatus.CAPTURED : PaymentStatus.PARTIALLY_CAPTURED;
+    }
+    return status;
+  }
+
+  /** The bank's decision, without any later capture, void or refund applied to it. */
+  @JsonIgnore
+  public PaymentStatus getAuthorizationStatus() {
     return status;
   }
 
@@ -69,16 +111,78 @@ public class PostPaymentResponse {
     this.amount = amount;
   }
 
+  public String getSettlementCurrency() {
+    return settlementCurrency;
+  }
+
+  public void setSettlementCurrency(String settlementCurrency) {
+    this.settlementCurrency = settlementCurrency;
+  }
+
+  /** Amount in minor units of the settlement currency, or null if no FX rate was available. */
+  public Long getSettlementAmount() {
+    return settlementAmount;
+  }
+
+  public void setSettlementAmount(Long settlementAmount) {
+    this.settlementAmount = settlementAmount;
+  }
+
+  public int getCapturedAmount() {
+    return PaymentLifecycleState.capturedAmount(lifecycleState);
+  }
+
+  public int getRefundedAmount() {
+    return PaymentLifecycleState.refundedAmount(lifecycleState);
+  }
+
+  public int getCapturableAmount() {
+    long state = lifecycleState;
+    if (status != PaymentStatus.AUTHORIZED || PaymentLifecycleState.isVoided(state)
+        || PaymentLifecycleState.refundedAmount(state) > 0) {
+      return 0;
+    }
+    return amount - PaymentLifecycleState.capturedAmount(state);
+  }
+
+  public int getRefundableAmount() {
+    long state = lifecycleState;
+    return PaymentLifecycleState.capturedAmount(state)
+        - PaymentLifecycleState.refundedAmount(state);
+  }
+
+  @JsonIgnore
+  public long getLifecycleState() {
+    return lifecycleState;
+  }
+
+  public boolean compareAndSetLifecycleState(long expectedState, long newState) {
+    return LIFECYCLE_STATE.compareAndSet(this, expectedState, newState);
+  }
+
+  @JsonIgnore
+  public String getAuthorizationCode() {
+    return authorizationCode;
+  }
+
+  public void setAuthorizationCode(String authorizationCode) {
+    this.authorizationCode = authorizationCode;
+  }
+
   @Override
   public String toString() {
     return "GetPaymentResponse{" +
         "id=" + id +
-        ", status=" + status +
+        ", status=" + getStatus() +
         ", cardNumberLastFour=" + cardNumberLastFour +
         ", expiryMonth=" + expiryMonth +
         ", expiryYear=" + expiryYear +
         ", currency='" + currency + '\'' +
         ", amount=" + amount +
+        ", settlementCurrency='" + settlementCurrency + '\'' +
+        ", settlementAmount=" + settlementAmount +
+        ", capturedAmount=" + getCapturedAmount() +
+        ", refundedAmount=" + getRefundedAmount() +
         '}';
   }
 }
@@ -0,0 +1,129 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.List;
+
+public class ReconciliationReport {
+  private long totalLines;
+  private long matched;
+  private long missing;
+  private long amountMismatched;
+  private long duplicated;
+  private long unknown;
+  private long malformed;
+  private long elapsedMillis;
+  private List<String> missingAuthorizationCodes;
+  private List<String> amountMismatchedAuthorizationCodes;
+  private List<String> duplicatedAuthorizationCodes;
+  private List<String> unknownAuthorizationCodes;
+
+  public long getTotalLines() {
+    return totalLines;
+  }
+
+  public void setTotalLines(long totalLines) {
+    this.totalLines = totalLines;
+  }
+
+  public long getMatched() {
+    return matched;
+  }
+
+  public void setMatched(long matched) {
+    this.matched = matched;
+  }
+
+  public long getMissing() {
+    return missing;
+  }
+
+  public void setMissing(long missing) {
+    this.missing = missing;
+  }
+
+  public long getAmountMismatched() {
+    return amountMismatched;
+  }
+
+  public void setAmountMismatched(long amountMismatched) {
+    this.amountMismatched = amountMismatched;
+  }
+
+  public long getDuplicated() {
+    return duplicated;
+  }
+
+  public void setDuplicated(long duplicated) {
+    this.duplicated = duplicated;
+  }
+
+  public long getUnknown() {
+    return unknown;
+  }
+
+  public void setUnknown(long unknown) {
+    this.unknown = unknown;
+  }
+
+  public long getMalformed() {
+    return malformed;
+  }
+
+  public void setMalformed(long malformed) {
+    this.malformed = malformed;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public List<String> getMissingAuthorizationCodes() {
+    return missingAuthorizationCodes;
+  }
+
+  public void setMissingAuthorizationCodes(List<String> missingAuthorizationCodes) {
+    this.missingAuthorizationCodes = missingAuthorizationCodes;
+  }
+
+  public List<String> getAmountMismatchedAuthorizationCodes() {
+    return amountMismatchedAuthorizationCodes;
+  }
+
+  public void setAmountMismatchedAuthorizationCodes(
+      List<String> amountMismatchedAuthorizationCodes) {
+    this.amountMismatchedAuthorizationCodes = amountMismatchedAuthorizationCodes;
+  }
+
+  public List<String> getDuplicatedAuthorizationCodes() {
+    return duplicatedAuthorizationCodes;
+  }
+
+  public void setDuplicatedAuthorizationCodes(List<String> duplicatedAuthorizationCodes) {
+    this.duplicatedAuthorizationCodes = duplicatedAuthorizationCodes;
+  }
+
+  public List<String> getUnknownAuthorizationCodes() {
+    return unknownAuthorizationCodes;
+  }
+
+  public void setUnknownAuthorizationCodes(List<String> unknownAuthorizationCodes) {
+    this.unknownAuthorizationCodes = unknownAuthorizationCodes;
+  }
+
+  @Override
+  public String toString() {
+    return "ReconciliationReport{" +
+        "totalLines=" + totalLines +
+        ", matched=" + matched +
+        ", missing=" + missing +
+        ", amountMismatched=" + amountMismatched +
+        ", duplicated=" + duplicated +
+        ", unknown=" + unknown +
+        ", malformed=" + malformed +
+        ", elapsedMillis=" + elapsedMillis +
+        '}';
+  }
+}
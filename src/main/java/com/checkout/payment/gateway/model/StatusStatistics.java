@@ -0,0 +1,52 @@
+package com.checkout.payment.gateway.model;
+
+import java.util.Map;
+
+public class StatusStatistics {
+  private long count;
+  private long volume;
+  private Map<String, Long> windowCounts;
+  private Map<String, Long> windowVolumes;
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public long getVolume() {
+    return volume;
+  }
+
+  public void setVolume(long volume) {
+    this.volume = volume;
+  }
+
+  public Map<String, Long> getWindowCounts() {
+    return windowCounts;
+  }
+
+  public void setWindowCounts(Map<String, Long> windowCounts) {
+    this.windowCounts = windowCounts;
+  }
+
+  public Map<String, Long> getWindowVolumes() {
+    return windowVolumes;
+  }
+
+  public void setWindowVolumes(Map<String, Long> windowVolumes) {
+    this.windowVolumes = windowVolumes;
+  }
+
+  @Override
+  public String toString() {
+    return "StatusStatistics{" +
+        "count=" + count +
+        ", volume=" + volume +
+        ", windowCounts=" + windowCounts +
+        ", windowVolumes=" + windowVolumes +
+        '}';
+  }
+}
@@ -1,22 +1,147 @@
 package com.checkout.payment.gateway.repository;
 
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.PaymentLifecycleException;
+import com.checkout.payment.gateway.model.PaymentLifecycleState;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class PaymentsRepository {
 
-  private final HashMap<UUID, PostPaymentResponse> payments = new HashMap<>();
+  private final ConcurrentHashMap<UUID, PostPaymentResponse> payments = new ConcurrentHashMap<>();
+  // Secondary index used to link acquirer settlement lines back to stored payments
+  private final ConcurrentHashMap<String, PostPaymentResponse> paymentsByAuthorizationCode =
+      new ConcurrentHashMap<>();
 
   public void add(PostPaymentResponse payment) {
     payments.put(payment.getId(), payment);
+    String authorizationCode = payment.getAuthorizationCode();
+    if (authorizationCode != null && !authorizationCode.isEmpty()) {
+      paymentsByAuthorizationCode.put(authorizationCode, payment);
+    }
   }
 
   public Optional<PostPaymentResponse> get(UUID id) {
     return Optional.ofNullable(payments.get(id));
   }
 
+  public Optional<PostPaymentResponse> getByAuthorizationCode(String authorizationCode) {
+    return Optional.ofNullable(paymentsByAuthorizationCode.get(authorizationCode));
+  }
+
+  public Collection<PostPaymentResponse> getAllWithAuthorizationCode() {
+    return Collections.unmodifiableCollection(paymentsByAuthorizationCode.values());
+  }
+
+  /**
+   * Lifecycle operations are applied with a compare-and-set on the payment's packed state, retried
+   * until no other operation raced in between. There is no lock, so operations on different
+   * payments never contend and conflicting operations on the same payment are serialised by the
+   * CAS alone. An invalid transition throws {@link PaymentLifecycleException}.
+   */
+  public Optional<PostPaymentResponse> capture(UUID id, int amount) {
+    return capture(id, OptionalInt.of(amount));
+  }
+
+  /** Captures whatever is still capturable when the CAS succeeds, however much that is. */
+  public Optional<PostPaymentResponse> captureRemaining(UUID id) {
+    return capture(id, OptionalInt.empty());
+  }
+
+  private Optional<PostPaymentResponse> capture(UUID id, OptionalInt requestedAmount) {
+    return transition(id, (payment, state) -> {
+      requireAuthorized(payment);
+      int captured = PaymentLifecycleState.capturedAmount(state);
+      if (PaymentLifecycleState.isVoided(state)) {
+        throw new PaymentLifecycleException("Payment has been voided");
+      }
+      // Once money has gone back to the cardholder the authorization is considered closed
+      if (PaymentLifecycleState.refundedAmount(state) > 0) {
+        throw new PaymentLifecycleException("Refunded payments cannot be captured");
+      }
+      int remaining = payment.getAmount() - captured;
+      if (remaining == 0) {
+        throw new PaymentLifecycleException("Nothing left to capture");
+      }
+      int amount = requestedAmount.orElse(remaining);
+      if (amount <= 0 || amount > remaining) {
+        throw new PaymentLifecycleException(
+            "Capture amount must be between 1 and " + remaining);
+      }
+      return PaymentLifecycleState.of(captured + amount, 0, false);
+    });
+  }
+
+  public Optional<PostPaymentResponse> voidAuthorization(UUID id) {
+    return transition(id, (payment, state) -> {
+      requireAuthorized(payment);
+      if (PaymentLifecycleState.isVoided(state)) {
+        throw new PaymentLifecycleException("Payment has already been voided");
+      }
+      if (PaymentLifecycleState.capturedAmount(state) > 0) {
+        throw new PaymentLifecycleException("Captured payments cannot be voided");
+      }
+      return PaymentLifecycleState.of(0, 0, true);
+    });
+  }
+
+  public Optional<PostPaymentResponse> refund(UUID id, int amount) {
+    return refund(id, OptionalInt.of(amount));
+  }
+
+  /** Refunds whatever is still refundable when the CAS succeeds, however much that is. */
+  public Optional<PostPaymentResponse> refundRemaining(UUID id) {
+    return refund(id, OptionalInt.empty());
+  }
+
+  private Optional<PostPaymentResponse> refund(UUID id, OptionalInt requestedAmount) {
+    return transition(id, (payment, state) -> {
+      requireAuthorized(payment);
+      int captured = PaymentLifecycleState.capturedAmount(state);
+      int refunded = PaymentLifecycleState.refundedAmount(state);
+      int remaining = captured - refunded;
+      if (remaining == 0) {
+        throw new PaymentLifecycleException("Nothing left to refund");
+      }
+      int amount = requestedAmount.orElse(remaining);
+      if (amount <= 0 || amount > remaining) {
+        throw new PaymentLifecycleException(
+            "Refund amount must be between 1 and " + remaining);
+      }
+      return PaymentLifecycleState.of(captured, refunded + amount, false);
+    });
+  }
+
+  private Optional<PostPaymentResponse> transition(UUID id, LifecycleTransition transition) {
+    PostPaymentResponse payment = payments.get(id);
+    if (payment == null) {
+      return Optional.empty();
+    }
+    long state;
+    long newState;
+    do {
+      state = payment.getLifecycleState();
+      newState = transition.apply(payment, state);
+    } while (!payment.compareAndSetLifecycleState(state, newState));
+    return Optional.of(payment);
+  }
+
+  private static void requireAuthorized(PostPaymentResponse payment) {
+    if (payment.getAuthorizationStatus() != PaymentStatus.AUTHORIZED) {
+      throw new PaymentLifecycleException("Only authorized payments can be captured, voided"
+          + " or refunded");
+    }
+  }
+
+  @FunctionalInterface
+  private interface LifecycleTransition {
+    long apply(PostPaymentResponse payment, long state);
+  }
 }
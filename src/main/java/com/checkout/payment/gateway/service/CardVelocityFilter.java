@@ -0,0 +1,218 @@
+package com.checkout.payment.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counts payment attempts per card over a sliding window so card-testing bursts can be refused
+ * before the acquiring bank is called.
+ *
+ * <p>Attempts are kept in a count-min sketch split into time buckets: the window is a ring of
+ * sketches, each covering {@code window / buckets}, plus one spare slot. A background thread
+ * allocates the sketch for the next bucket into the spare slot, which holds a bucket that has
+ * already left the window, before that bucket starts, so a request only allocates a sketch
+ * itself if the background thread has fallen behind. Memory is fixed at
+ * {@code (buckets + 1) * depth * width} counters however many distinct cards are seen. Only a
+ * seeded 64-bit hash of the card number is used, and the seed is random per process.
+ *
+ * <p>A count-min sketch can only over-estimate, so a card is never let through above the
+ * threshold; the cost is an occasional false rejection once the sketch gets crowded. Every row is
+ * incremented atomically rather than using conservative update, which would lower that rate but
+ * can lose concurrent attempts with the same card, exactly the case this filter exists for.
+ */
+@Service
+public class CardVelocityFilter {
+
+  private final boolean enabled;
+  private final int maxAttempts;
+  private final int depth;
+  private final int widthMask;
+  private final long bucketNanos;
+  private final int windowBuckets;
+  private final AtomicReferenceArray<Sketch> buckets;
+  private final long seed;
+  private final LongSupplier nanoClock;
+  // Rollovers a request thread had to do itself because the rotation thread was behind
+  private final LongAdder requestThreadRollovers = new LongAdder();
+  private ScheduledExecutorService rotator;
+
+  @Autowired
+  public CardVelocityFilter(@Value("${velocity.enabled:true}") boolean enabled,
+      @Value("${velocity.max-attempts:20}") int maxAttempts,
+      @Value("${velocity.window-seconds:60}") int windowSeconds,
+      @Value("${velocity.buckets:6}") int buckets,
+      @Value("${velocity.sketch.depth:4}") int depth,
+      @Value("${velocity.sketch.width:65536}") int width) {
+    this(enabled, maxAttempts, TimeUnit.SECONDS.toNanos(windowSeconds), buckets, depth, width,
+        new SecureRandom().nextLong(), System::nanoTime);
+  }
+
+  CardVelocityFilter(boolean enabled, int maxAttempts, long windowNanos, int buckets, int depth,
+      int width, long seed, LongSupplier nanoClock) {
+    if (Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("Sketch width must be a power of two, got " + width);
+    }
+    this.enabled = enabled;
+    this.maxAttempts = maxAttempts;
+    this.depth = depth;
+    this.widthMask = width - 1;
+    this.bucketNanos = windowNanos / buckets;
+    this.windowBuckets = buckets;
+    this.buckets = new AtomicReferenceArray<>(buckets + 1);
+    this.seed = seed;
+    this.nanoClock = nanoClock;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "velocity-bucket-rotation");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Twice per bucket, so the next sketch is always ready well before it is needed
+    rotator.scheduleAtFixedRate(this::prepareBuckets, 0, bucketNanos / 2, TimeUnit.NANOSECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (rotator != null) {
+      rotator.shutdownNow();
+    }
+  }
+
+  /** Installs sketches for the current and the next bucket if they are not there yet. */
+  void prepareBuckets() {
+    long epoch = Math.floorDiv(nanoClock.getAsLong(), bucketNanos);
+    install(epoch);
+    install(epoch + 1);
+  }
+
+  /**
+   * Records an attempt with the card and returns whether it is still within the allowed number
+   * of attempts for the window, this one included.
+   */
+  public boolean tryAcquire(String cardNumber) {
+    if (!enabled) {
+      return true;
+    }
+    long hash = hash(cardNumber);
+    long epoch = Math.floorDiv(nanoClock.getAsLong(), bucketNanos);
+    currentBucket(epoch).add(hash);
+    return estimate(hash, epoch) <= maxAttempts;
+  }
+
+  /** Returns the estimated number of attempts with the card over the current window. */
+  public int estimate(String cardNumber) {
+    return estimate(hash(cardNumber), Math.floorDiv(nanoClock.getAsLong(), bucketNanos));
+  }
+
+  /** Fixed size of the counters in bytes, independent of how many cards have been seen. */
+  public long memoryBytes() {
+    return (long) buckets.length() * depth * (widthMask + 1) * Integer.BYTES;
+  }
+
+  long requestThreadRollovers() {
+    return requestThreadRollovers.sum();
+  }
+
+  private int estimate(long hash, long epoch) {
+    long oldest = epoch - windowBuckets + 1;
+    long total = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Sketch sketch = buckets.get(i);
+      if (sketch != null && sketch.epoch >= oldest && sketch.epoch <= epoch) {
+        total += sketch.estimate(hash);
+      }
+    }
+    return (int) Math.min(total, Integer.MAX_VALUE);
+  }
+
+  private Sketch currentBucket(long epoch) {
+    Sketch sketch = buckets.get(slot(epoch));
+    if (sketch != null && sketch.epoch == epoch) {
+      return sketch;
+    }
+    requestThreadRollovers.increment();
+    return install(epoch);
+  }
+
+  private Sketch install(long epoch) {
+    int index = slot(epoch);
+    Sketch sketch = buckets.get(index);
+    while (sketch == null || sketch.epoch < epoch) {
+      Sketch fresh = new Sketch(epoch);
+      if (buckets.compareAndSet(index, sketch, fresh)) {
+        return fresh;
+      }
+      sketch = buckets.get(index);
+    }
+    return sketch;
+  }
+
+  private int slot(long epoch) {
+    return (int) Math.floorMod(epoch, (long) buckets.length());
+  }
+
+  private long hash(String cardNumber) {
+    long hash = seed;
+    for (int i = 0; i < cardNumber.length(); i++) {
+      hash = (hash ^ cardNumber.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  // MurmurHash3 64-bit finaliser
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+
+  private class Sketch {
+    private final long epoch;
+    private final AtomicIntegerArray counters = new AtomicIntegerArray(depth * (widthMask + 1));
+
+    Sketch(long epoch) {
+      this.epoch = epoch;
+    }
+
+    void add(long hash) {
+      long step = mix(hash) | 1;
+      for (int row = 0; row < depth; row++) {
+        counters.incrementAndGet(index(row, hash, step));
+      }
+    }
+
+    int estimate(long hash) {
+      long step = mix(hash) | 1;
+      int min = Integer.MAX_VALUE;
+      for (int row = 0; row < depth; row++) {
+        min = Math.min(min, counters.get(index(row, hash, step)));
+      }
+      return min;
+    }
+
+    // Double hashing gives each row an independent-enough column from one 64-bit hash
+    private int index(int row, long hash, long step) {
+      return row * (widthMask + 1) + (int) ((hash + row * step) & widthMask);
+    }
+  }
+}
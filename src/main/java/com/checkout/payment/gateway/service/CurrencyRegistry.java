@@ -0,0 +1,131 @@
+package com.checkout.payment.gateway.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.springframework.stereotype.Service;
+
+/**
+ * ISO 4217 currencies with their numeric codes and minor units, loaded from
+ * {@code iso4217.csv} on the classpath.
+ *
+ * <p>A three-letter code maps directly to a slot in flat arrays, {@code (c0 * 26 + c1) * 26 + c2},
+ * so a lookup is a few character checks and an array read, with no hashing and no
+ * {@code toUpperCase} copy. Codes are accepted in either case.
+ */
+@Service
+public class CurrencyRegistry {
+
+  /** Returned by {@link #index} for anything that is not three ASCII letters. */
+  public static final int NOT_A_CODE = -1;
+  /** Minor units of unknown codes and of codes such as gold or XDR where ISO lists none. */
+  public static final int NO_MINOR_UNITS = -1;
+  static final int SLOTS = 26 * 26 * 26;
+
+  private static final String RESOURCE = "/iso4217.csv";
+  private static final byte UNKNOWN = -2;
+
+  private final String[] codes = new String[SLOTS];
+  private final short[] numericCodes = new short[SLOTS];
+  private final byte[] minorUnits = new byte[SLOTS];
+  private int size;
+
+  public CurrencyRegistry() {
+    InputStream in = CurrencyRegistry.class.getResourceAsStream(RESOURCE);
+    if (in == null) {
+      throw new IllegalStateException("Currency table " + RESOURCE + " not found on classpath");
+    }
+    try (Reader reader = new InputStreamReader(in, StandardCharsets.US_ASCII)) {
+      load(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read currency table " + RESOURCE, e);
+    }
+  }
+
+  private void load(Reader reader) throws IOException {
+    Arrays.fill(minorUnits, UNKNOWN);
+    BufferedReader lines = new BufferedReader(reader);
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split(",");
+      int index = fields.length == 3 ? index(fields[0]) : NOT_A_CODE;
+      if (index == NOT_A_CODE) {
+        throw new IllegalStateException("Malformed currency table line: " + line);
+      }
+      if (codes[index] == null) {
+        size++;
+      }
+      codes[index] = fields[0].toUpperCase();
+      numericCodes[index] = Short.parseShort(fields[1]);
+      minorUnits[index] = fields[2].equals("-") ? NO_MINOR_UNITS : Byte.parseByte(fields[2]);
+    }
+  }
+
+  /** Returns the array slot for a three-letter code in either case, or {@link #NOT_A_CODE}. */
+  public static int index(CharSequence code) {
+    if (code == null || code.length() != 3) {
+      return NOT_A_CODE;
+    }
+    int index = 0;
+    for (int i = 0; i < 3; i++) {
+      // Folding to lower case maps both 'A'..'Z' and 'a'..'z' onto 0..25
+      int letter = (code.charAt(i) | 0x20) - 'a';
+      if (letter < 0 || letter >= 26) {
+        return NOT_A_CODE;
+      }
+      index = index * 26 + letter;
+    }
+    return index;
+  }
+
+  /** Whether the code is an ISO 4217 currency, including funds and precious metals. */
+  public boolean isCurrency(String code) {
+    int index = index(code);
+    return index != NOT_A_CODE && minorUnits[index] != UNKNOWN;
+  }
+
+  /**
+   * Whether an amount in minor units can be taken in this currency, that is the code is known and
+   * ISO defines minor units for it.
+   */
+  public boolean isPayable(String code) {
+    return minorUnits(index(code)) != NO_MINOR_UNITS;
+  }
+
+  /** Minor units of the currency, e.g. 2 for GBP and 0 for JPY, or {@link #NO_MINOR_UNITS}. */
+  public int minorUnits(String code) {
+    return minorUnits(index(code));
+  }
+
+  int minorUnits(int index) {
+    if (index == NOT_A_CODE || minorUnits[index] == UNKNOWN) {
+      return NO_MINOR_UNITS;
+    }
+    return minorUnits[index];
+  }
+
+  /** ISO 4217 numeric code, e.g. 826 for GBP, or -1 if the code is unknown. */
+  public int numericCode(String code) {
+    int index = index(code);
+    return index == NOT_A_CODE || codes[index] == null ? -1 : numericCodes[index];
+  }
+
+  /** The upper-case code held by the registry, or {@code null} if the code is unknown. */
+  public String canonicalCode(String code) {
+    int index = index(code);
+    return index == NOT_A_CODE ? null : codes[index];
+  }
+
+  /** Number of currencies in the registry. */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,138 @@
+package com.checkout.payment.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Converts payment amounts into the settlement currency using rates from a local file.
+ *
+ * <p>The file is read into an immutable {@link FxRateSnapshot} which request threads only ever
+ * read through a volatile field. A background thread reloads the file {@code refresh-ahead}
+ * before the current snapshot expires and swaps the new one in, so a request never waits on a
+ * reload. If a reload fails the current snapshot is kept and the reload retried; once a snapshot
+ * has expired it is no longer used and amounts are reported without a settlement value rather
+ * than with a stale one.
+ */
+@Service
+public class FxRateService {
+
+  /** Returned by {@link #toSettlement} when there is no current rate for the currency. */
+  public static final long NO_RATE = FxRateSnapshot.NO_RATE;
+
+  private static final Logger LOG = LoggerFactory.getLogger(FxRateService.class);
+
+  private final CurrencyRegistry currencyRegistry;
+  private final String settlementCurrency;
+  private final Path ratesFile;
+  private final long ttlNanos;
+  private final long refreshAheadNanos;
+  private final LongSupplier nanoClock;
+  private volatile FxRateSnapshot snapshot;
+  private ScheduledExecutorService refresher;
+
+  @Autowired
+  public FxRateService(CurrencyRegistry currencyRegistry,
+      @Value("${fx.settlement-currency:GBP}") String settlementCurrency,
+      @Value("${fx.rates.file:fx-rates.csv}") String ratesFile,
+      @Value("${fx.rates.ttl-seconds:3600}") long ttlSeconds,
+      @Value("${fx.rates.refresh-ahead-seconds:300}") long refreshAheadSeconds) {
+    this(currencyRegistry, settlementCurrency, Path.of(ratesFile),
+        TimeUnit.SECONDS.toNanos(ttlSeconds), TimeUnit.SECONDS.toNanos(refreshAheadSeconds),
+        System::nanoTime);
+  }
+
+  FxRateService(CurrencyRegistry currencyRegistry, String settlementCurrency, Path ratesFile,
+      long ttlNanos, long refreshAheadNanos, LongSupplier nanoClock) {
+    if (!currencyRegistry.isPayable(settlementCurrency)) {
+      throw new IllegalArgumentException("Settlement currency must be an ISO 4217 currency code,"
+          + " got " + settlementCurrency);
+    }
+    if (refreshAheadNanos <= 0 || refreshAheadNanos >= ttlNanos) {
+      throw new IllegalArgumentException("FX refresh-ahead must be positive and below the TTL");
+    }
+    this.currencyRegistry = currencyRegistry;
+    this.settlementCurrency = currencyRegistry.canonicalCode(settlementCurrency);
+    this.ratesFile = ratesFile;
+    this.ttlNanos = ttlNanos;
+    this.refreshAheadNanos = refreshAheadNanos;
+    this.nanoClock = nanoClock;
+    this.snapshot = FxRateSnapshot.empty(this.settlementCurrency, nanoClock.getAsLong());
+  }
+
+  @PostConstruct
+  public void start() {
+    refresh();
+    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "fx-rate-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduleRefresh();
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+    }
+  }
+
+  /**
+   * Converts an amount in minor units of {@code currency} into minor units of the settlement
+   * currency, rounding half up, or returns {@link #NO_RATE} if the currency has no current rate.
+   * Does not allocate.
+   */
+  public long toSettlement(int amount, String currency) {
+    FxRateSnapshot current = snapshot;
+    if (current.expiresAtNanos() - nanoClock.getAsLong() <= 0) {
+      return NO_RATE;
+    }
+    return current.toSettlement(amount, CurrencyRegistry.index(currency));
+  }
+
+  public String getSettlementCurrency() {
+    return settlementCurrency;
+  }
+
+  /** Reads the rates file and swaps in the new snapshot, returning whether that succeeded. */
+  boolean refresh() {
+    try {
+      long expiresAtNanos = nanoClock.getAsLong() + ttlNanos;
+      FxRateSnapshot loaded = FxRateSnapshot.parse(currencyRegistry, settlementCurrency,
+          Files.readAllLines(ratesFile, StandardCharsets.US_ASCII), expiresAtNanos);
+      snapshot = loaded;
+      LOG.info("Loaded {} FX rates from {} for settlement in {}", loaded.rateCount(), ratesFile,
+          settlementCurrency);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Cannot load FX rates from {}, keeping the current rates: {}", ratesFile,
+          e.getMessage());
+      return false;
+    }
+  }
+
+  private void scheduleRefresh() {
+    long untilExpiry = snapshot.expiresAtNanos() - nanoClock.getAsLong();
+    // Reload refresh-ahead before expiry, and after a failure retry a few times within that window
+    long delay = untilExpiry > refreshAheadNanos
+        ? untilExpiry - refreshAheadNanos
+        : refreshAheadNanos / 5;
+    refresher.schedule(() -> {
+      refresh();
+      scheduleRefresh();
+    }, delay, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,190 @@
+package com.checkout.payment.gateway.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Immutable set of conversion factors into the settlement currency, built from one read of the
+ * rates file.
+ *
+ * <p>All the decimal work happens when the snapshot is built. Each currency gets a binary
+ * fixed-point factor from its minor units to settlement minor units, {@code multiplier / 2^shift}
+ * with the multiplier normalised into {@code [2^61, 2^62)}, so converting an amount is one
+ * 64x64-bit multiply into 128 bits, a rounding add and a shift, with no allocation. That estimate
+ * is within one of the exact result but cannot tell an exact half from a value just below it, so
+ * the factor is also kept as an exact reduced fraction and the estimate is corrected against it
+ * with two more multiplies. Rates whose fraction does not fit in 61 bits are refused.
+ */
+final class FxRateSnapshot {
+
+  static final long NO_RATE = Long.MIN_VALUE;
+
+  private static final int MULTIPLIER_BITS = 62;
+  private static final int MAX_SHIFT = 126;
+  // Keeps the remainder against the exact fraction, and twice that, within a long
+  private static final int MAX_FRACTION_BITS = 61;
+  // Keeps the converted amount of any int within a long
+  private static final int MAX_FACTOR_BITS = 31;
+
+  private final String settlementCurrency;
+  private final long[] multipliers = new long[CurrencyRegistry.SLOTS];
+  private final byte[] shifts = new byte[CurrencyRegistry.SLOTS];
+  private final long[] numerators = new long[CurrencyRegistry.SLOTS];
+  private final long[] denominators = new long[CurrencyRegistry.SLOTS];
+  private final int rateCount;
+  private final long expiresAtNanos;
+
+  private FxRateSnapshot(String settlementCurrency, int rateCount, long expiresAtNanos) {
+    this.settlementCurrency = settlementCurrency;
+    this.rateCount = rateCount;
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  static FxRateSnapshot empty(String settlementCurrency, long expiresAtNanos) {
+    return new FxRateSnapshot(settlementCurrency, 0, expiresAtNanos);
+  }
+
+  /**
+   * Builds a snapshot from lines of {@code CODE,rate}, each rate being units of that currency per
+   * unit of one common base currency. The settlement currency must be among them.
+   */
+  static FxRateSnapshot parse(CurrencyRegistry registry, String settlementCurrency,
+      List<String> lines, long expiresAtNanos) {
+    BigDecimal[] rates = new BigDecimal[CurrencyRegistry.SLOTS];
+    int count = 0;
+    for (String line : lines) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split(",");
+      if (fields.length != 2 || !registry.isPayable(fields[0].trim())) {
+        throw new IllegalArgumentException("Malformed FX rate line: " + line);
+      }
+      BigDecimal rate = new BigDecimal(fields[1].trim());
+      if (rate.signum() <= 0) {
+        throw new IllegalArgumentException("FX rate must be positive: " + line);
+      }
+      rates[CurrencyRegistry.index(fields[0].trim())] = rate;
+      count++;
+    }
+
+    int settlementIndex = CurrencyRegistry.index(settlementCurrency);
+    BigDecimal settlementRate = rates[settlementIndex];
+    if (settlementRate == null) {
+      throw new IllegalArgumentException("No FX rate for settlement currency "
+          + settlementCurrency);
+    }
+    int settlementMinorUnits = registry.minorUnits(settlementIndex);
+
+    FxRateSnapshot snapshot = new FxRateSnapshot(settlementCurrency, count, expiresAtNanos);
+    for (int index = 0; index < rates.length; index++) {
+      if (rates[index] != null) {
+        snapshot.setFactor(index, settlementRate, rates[index],
+            settlementMinorUnits - registry.minorUnits(index));
+      }
+    }
+    return snapshot;
+  }
+
+  // factor = settlementRate / rate * 10^minorUnitsShift, kept as an exact reduced fraction
+  private void setFactor(int index, BigDecimal settlementRate, BigDecimal rate,
+      int minorUnitsShift) {
+    BigInteger numerator = settlementRate.unscaledValue();
+    BigInteger denominator = rate.unscaledValue();
+    int powerOfTen = rate.scale() - settlementRate.scale() + minorUnitsShift;
+    if (powerOfTen >= 0) {
+      numerator = numerator.multiply(BigInteger.TEN.pow(powerOfTen));
+    } else {
+      denominator = denominator.multiply(BigInteger.TEN.pow(-powerOfTen));
+    }
+    BigInteger gcd = numerator.gcd(denominator);
+    numerator = numerator.divide(gcd);
+    denominator = denominator.divide(gcd);
+    if (numerator.bitLength() > MAX_FRACTION_BITS || denominator.bitLength() > MAX_FRACTION_BITS) {
+      throw new IllegalArgumentException("FX rate has too many significant digits for slot "
+          + index);
+    }
+
+    int exponent = Math.getExponent(numerator.doubleValue() / denominator.doubleValue());
+    int shift = MULTIPLIER_BITS - 1 - exponent;
+    if (numerator.compareTo(denominator.shiftLeft(MAX_FACTOR_BITS)) >= 0 || shift > MAX_SHIFT) {
+      throw new IllegalArgumentException("FX rate out of range for slot " + index);
+    }
+    BigInteger[] quotientAndRemainder =
+        numerator.shiftLeft(shift).divideAndRemainder(denominator);
+    BigInteger multiplier = quotientAndRemainder[0];
+    if (quotientAndRemainder[1].shiftLeft(1).compareTo(denominator) >= 0) {
+      multiplier = multiplier.add(BigInteger.ONE);
+    }
+    multipliers[index] = multiplier.longValueExact();
+    shifts[index] = (byte) shift;
+    numerators[index] = numerator.longValueExact();
+    denominators[index] = denominator.longValueExact();
+  }
+
+  /**
+   * Converts an amount in minor units of the currency at {@code index} into settlement minor
+   * units, rounding half away from zero like {@link RoundingMode#HALF_UP}, or returns
+   * {@link #NO_RATE} if the snapshot has no rate for it.
+   */
+  long toSettlement(int amount, int index) {
+    long multiplier = index == CurrencyRegistry.NOT_A_CODE ? 0 : multipliers[index];
+    if (multiplier == 0) {
+      return NO_RATE;
+    }
+    long magnitude = Math.abs((long) amount);
+    long rounded = multiplyShiftRound(magnitude, multiplier, shifts[index]);
+    // The estimate is within one of the exact value, so this remainder fits in a long even though
+    // the products wrap
+    long numerator = numerators[index];
+    long denominator = denominators[index];
+    long remainder = magnitude * numerator - rounded * denominator;
+    while (2 * remainder >= denominator) {
+      rounded++;
+      remainder -= denominator;
+    }
+    while (2 * remainder < -denominator) {
+      rounded--;
+      remainder += denominator;
+    }
+    return amount < 0 ? -rounded : rounded;
+  }
+
+  // (amount * multiplier + 2^(shift-1)) >> shift over the full 128-bit product
+  static long multiplyShiftRound(long amount, long multiplier, int shift) {
+    long low = amount * multiplier;
+    long high = Math.multiplyHigh(amount, multiplier);
+    if (shift == 0) {
+      return low;
+    }
+    if (shift <= 64) {
+      long half = 1L << (shift - 1);
+      long sum = low + half;
+      if (Long.compareUnsigned(sum, low) < 0) {
+        high++;
+      }
+      low = sum;
+    } else {
+      high += 1L << (shift - 65);
+    }
+    if (shift < 64) {
+      return (high << (64 - shift)) | (low >>> shift);
+    }
+    return high >> (shift - 64);
+  }
+
+  String settlementCurrency() {
+    return settlementCurrency;
+  }
+
+  int rateCount() {
+    return rateCount;
+  }
+
+  long expiresAtNanos() {
+    return expiresAtNanos;
+  }
+}
@@ -7,7 +7,6 @@ import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
 import java.time.Year;
 import java.time.YearMonth;
-import java.util.Set;
 import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
@@ -23,13 +22,23 @@ public class PaymentGatewayService {
 
   private final PaymentsRepository paymentsRepository;
   private final RestTemplate restTemplate;
+  private final PaymentStatisticsService paymentStatisticsService;
+  private final CardVelocityFilter cardVelocityFilter;
+  private final CurrencyRegistry currencyRegistry;
+  private final FxRateService fxRateService;
   
   @Value("${bank.simulator.url:http://localhost:8080}")
   private String bankSimulatorUrl;
 
-  public PaymentGatewayService(PaymentsRepository paymentsRepository, RestTemplate restTemplate) {
+  public PaymentGatewayService(PaymentsRepository paymentsRepository, RestTemplate restTemplate,
+      PaymentStatisticsService paymentStatisticsService, CardVelocityFilter cardVelocityFilter,
+      CurrencyRegistry currencyRegistry, FxRateService fxRateService) {
     this.paymentsRepository = paymentsRepository;
     this.restTemplate = restTemplate;
+    this.paymentStatisticsService = paymentStatisticsService;
+    this.cardVelocityFilter = cardVelocityFilter;
+    this.currencyRegistry = currencyRegistry;
+    this.fxRateService = fxRateService;
   }
 
   public PostPaymentResponse getPaymentById(UUID id) {
@@ -37,14 +46,52 @@ public class PaymentGatewayService {
     return paymentsRepository.get(id).orElseThrow(() -> new EventProcessingException("Invalid ID"));
   }
 
+  /** Captures {@code amount}, or everything still capturable when no amount is given. */
+  public PostPaymentResponse capturePayment(UUID id, Integer amount) {
+    LOG.debug("Capturing payment with ID {}", id);
+    PostPaymentResponse payment = (amount != null
+        ? paymentsRepository.capture(id, amount)
+        : paymentsRepository.captureRemaining(id))
+        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+    LOG.info("Captured {} of payment with ID: {}", amount != null ? amount : "the remainder", id);
+    return payment;
+  }
+
+  public PostPaymentResponse voidPayment(UUID id) {
+    LOG.debug("Voiding payment with ID {}", id);
+    PostPaymentResponse payment = paymentsRepository.voidAuthorization(id)
+        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+    LOG.info("Voided payment with ID: {}", id);
+    return payment;
+  }
+
+  /** Refunds {@code amount}, or everything still refundable when no amount is given. */
+  public PostPaymentResponse refundPayment(UUID id, Integer amount) {
+    LOG.debug("Refunding payment with ID {}", id);
+    PostPaymentResponse payment = (amount != null
+        ? paymentsRepository.refund(id, amount)
+        : paymentsRepository.refundRemaining(id))
+        .orElseThrow(() -> new EventProcessingException("Invalid ID"));
+    LOG.info("Refunded {} of payment with ID: {}", amount != null ? amount : "the remainder", id);
+    return payment;
+  }
+
   public PostPaymentResponse processPayment(PostPaymentRequest paymentRequest) {
     LOG.debug("Processing payment request");
     
-    // Validate the payment request
-    validatePaymentRequest(paymentRequest);
-    
-    // Call the acquiring bank
-    BankResponse bankResponse = callAcquiringBank(paymentRequest);
+    // Validate the payment request, refuse card-testing bursts and call the acquiring bank; a
+    // request that goes no further is counted as rejected
+    BankResponse bankResponse;
+    try {
+      validatePaymentRequest(paymentRequest);
+      if (!cardVelocityFilter.tryAcquire(paymentRequest.getCardNumber())) {
+        throw new EventProcessingException("Too many payment attempts with this card");
+      }
+      bankResponse = callAcquiringBank(paymentRequest);
+    } catch (EventProcessingException e) {
+      paymentStatisticsService.recordRejected();
+      throw e;
+    }
     
     // Create payment response
     PostPaymentResponse paymentResponse = new PostPaymentResponse();
@@ -55,9 +102,17 @@ public class PaymentGatewayService {
     paymentResponse.setExpiryYear(paymentRequest.getExpiryYear());
     paymentResponse.setCurrency(paymentRequest.getCurrency());
     paymentResponse.setAmount(paymentRequest.getAmount());
+    paymentResponse.setAuthorizationCode(bankResponse.getAuthorizationCode());
+    long settlementAmount = fxRateService.toSettlement(paymentRequest.getAmount(),
+        paymentRequest.getCurrency());
+    if (settlementAmount != FxRateService.NO_RATE) {
+      paymentResponse.setSettlementCurrency(fxRateService.getSettlementCurrency());
+      paymentResponse.setSettlementAmount(settlementAmount);
+    }
     
     // Store the payment
     paymentsRepository.add(paymentResponse);
+    paymentStatisticsService.record(paymentResponse);
     
     LOG.info("Payment processed with ID: {} and status: {}", paymentResponse.getId(), paymentResponse.getStatus());
     
@@ -105,10 +160,9 @@ public class PaymentGatewayService {
       throw new EventProcessingException("Currency must be 3 characters");
     }
     
-    // Validate against a whitelist of ISO currency codes (limiting to 3 as per requirement)
-    Set<String> allowedCurrencies = Set.of("GBP", "EUR", "USD");
-    if (!allowedCurrencies.contains(request.getCurrency().toUpperCase())) {
-      throw new EventProcessingException("Currency must be one of: USD, EUR, GBP");
+    // Validate against ISO 4217, excluding codes such as gold or XDR that have no minor units
+    if (!currencyRegistry.isPayable(request.getCurrency())) {
+      throw new EventProcessingException("Currency must be an ISO 4217 currency code");
     }
     
     // Amount validation
@@ -0,0 +1,189 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.AggregateStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.StatusStatistics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Live payment counters for the risk and ops dashboards.
+ *
+ * <p>Counters are kept overall, per currency and per card bucket (the last digit of the card
+ * number). Each keeps cumulative {@link LongAdder} totals plus 1m, 5m and 1h sliding windows per
+ * authorization outcome (authorized, declined or rejected), so recording a payment never takes a
+ * lock and reading the stats never touches the repository. Later captures, voids and refunds do
+ * not change a payment's outcome and are not counted here.
+ *
+ * <p>Per-currency volumes are in that currency's minor units. The overall and card-bucket
+ * aggregates span currencies, so their volumes are in minor units of the settlement currency;
+ * a payment with no settlement amount, for want of an FX rate, is counted there without volume.
+ */
+@Service
+public class PaymentStatisticsService {
+
+  static final int CARD_BUCKETS = 10;
+
+  private static final String[] WINDOW_NAMES = {"1m", "5m", "1h"};
+  private static final long[] WINDOW_NANOS = {
+      TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(5), TimeUnit.HOURS.toNanos(1)};
+  private static final int BUCKETS_PER_WINDOW = 60;
+  private static final PaymentStatus[] STATUSES = {
+      PaymentStatus.AUTHORIZED, PaymentStatus.DECLINED, PaymentStatus.REJECTED};
+
+  private final String settlementCurrency;
+  private final LongSupplier nanoClock;
+  private final Aggregates total = new Aggregates();
+  private final ConcurrentHashMap<String, Aggregates> byCurrency = new ConcurrentHashMap<>();
+  private final Aggregates[] byCardBucket = new Aggregates[CARD_BUCKETS];
+
+  @Autowired
+  public PaymentStatisticsService(FxRateService fxRateService) {
+    this(fxRateService.getSettlementCurrency(), System::nanoTime);
+  }
+
+  PaymentStatisticsService(String settlementCurrency, LongSupplier nanoClock) {
+    this.settlementCurrency = settlementCurrency;
+    this.nanoClock = nanoClock;
+    for (int i = 0; i < CARD_BUCKETS; i++) {
+      byCardBucket[i] = new Aggregates();
+    }
+  }
+
+  public void record(PostPaymentResponse payment) {
+    long now = nanoClock.getAsLong();
+    PaymentStatus status = payment.getAuthorizationStatus();
+    Long settlementAmount = payment.getSettlementAmount();
+    long settlementVolume = settlementAmount != null ? settlementAmount : 0;
+
+    total.record(status, settlementVolume, now);
+    if (payment.getCurrency() != null) {
+      byCurrency.computeIfAbsent(payment.getCurrency().toUpperCase(),
+          currency -> new Aggregates()).record(status, payment.getAmount(), now);
+    }
+    int cardBucket = cardBucket(payment.getCardNumberLastFour());
+    if (cardBucket >= 0) {
+      byCardBucket[cardBucket].record(status, settlementVolume, now);
+    }
+  }
+
+  /**
+   * Records a request that failed validation or that the acquiring bank could not process, so
+   * the counts add up to the requests seen. Only the overall count is updated because the
+   * currency, card number and amount of a request that was not processed cannot be trusted.
+   */
+  public void recordRejected() {
+    total.record(PaymentStatus.REJECTED, 0, nanoClock.getAsLong());
+  }
+
+  public PaymentStatisticsResponse getStatistics() {
+    long now = nanoClock.getAsLong();
+    PaymentStatisticsResponse response = new PaymentStatisticsResponse();
+    response.setTotal(total.snapshot(settlementCurrency, now));
+
+    Map<String, AggregateStatistics> currencies = new TreeMap<>();
+    byCurrency.forEach((currency, aggregates) ->
+        currencies.put(currency, aggregates.snapshot(currency, now)));
+    response.setCurrencies(currencies);
+
+    Map<String, AggregateStatistics> cardBuckets = new LinkedHashMap<>();
+    for (int i = 0; i < CARD_BUCKETS; i++) {
+      cardBuckets.put(String.valueOf(i), byCardBucket[i].snapshot(settlementCurrency, now));
+    }
+    response.setCardBuckets(cardBuckets);
+    return response;
+  }
+
+  private static int cardBucket(String cardNumberLastFour) {
+    if (cardNumberLastFour == null || cardNumberLastFour.isEmpty()) {
+      return -1;
+    }
+    int digit = cardNumberLastFour.charAt(cardNumberLastFour.length() - 1) - '0';
+    return digit >= 0 && digit < CARD_BUCKETS ? digit : -1;
+  }
+
+  private static int indexOf(PaymentStatus status) {
+    for (int s = 0; s < STATUSES.length; s++) {
+      if (STATUSES[s] == status) {
+        return s;
+      }
+    }
+    return -1;
+  }
+
+  private static Double approvalRate(long authorized, long declined) {
+    long decided = authorized + declined;
+    return decided == 0 ? null : (double) authorized / decided;
+  }
+
+  private static class Aggregates {
+    private final LongAdder[] counts = new LongAdder[STATUSES.length];
+    private final LongAdder[] volumes = new LongAdder[STATUSES.length];
+    private final SlidingWindowCounter[][] windows =
+        new SlidingWindowCounter[STATUSES.length][WINDOW_NANOS.length];
+
+    Aggregates() {
+      for (int s = 0; s < STATUSES.length; s++) {
+        counts[s] = new LongAdder();
+        volumes[s] = new LongAdder();
+        for (int w = 0; w < WINDOW_NANOS.length; w++) {
+          windows[s][w] = new SlidingWindowCounter(WINDOW_NANOS[w], BUCKETS_PER_WINDOW);
+        }
+      }
+    }
+
+    void record(PaymentStatus status, long volume, long now) {
+      int s = indexOf(status);
+      if (s < 0) {
+        return;
+      }
+      counts[s].increment();
+      volumes[s].add(volume);
+      for (SlidingWindowCounter window : windows[s]) {
+        window.add(now, volume);
+      }
+    }
+
+    AggregateStatistics snapshot(String volumeCurrency, long now) {
+      Map<String, StatusStatistics> statuses = new LinkedHashMap<>();
+      for (int s = 0; s < STATUSES.length; s++) {
+        PaymentStatus status = STATUSES[s];
+        StatusStatistics statistics = new StatusStatistics();
+        statistics.setCount(counts[s].sum());
+        statistics.setVolume(volumes[s].sum());
+        Map<String, Long> windowCounts = new LinkedHashMap<>();
+        Map<String, Long> windowVolumes = new LinkedHashMap<>();
+        for (int w = 0; w < WINDOW_NAMES.length; w++) {
+          windowCounts.put(WINDOW_NAMES[w], windows[s][w].count(now));
+          windowVolumes.put(WINDOW_NAMES[w], windows[s][w].volume(now));
+        }
+        statistics.setWindowCounts(windowCounts);
+        statistics.setWindowVolumes(windowVolumes);
+        statuses.put(status.getName(), statistics);
+      }
+
+      AggregateStatistics aggregate = new AggregateStatistics();
+      aggregate.setVolumeCurrency(volumeCurrency);
+      aggregate.setStatuses(statuses);
+      StatusStatistics authorized = statuses.get(PaymentStatus.AUTHORIZED.getName());
+      StatusStatistics declined = statuses.get(PaymentStatus.DECLINED.getName());
+      aggregate.setApprovalRate(approvalRate(authorized.getCount(), declined.getCount()));
+      Map<String, Double> windowApprovalRates = new LinkedHashMap<>();
+      for (String window : WINDOW_NAMES) {
+        windowApprovalRates.put(window, approvalRate(authorized.getWindowCounts().get(window),
+            declined.getWindowCounts().get(window)));
+      }
+      aggregate.setWindowApprovalRates(windowApprovalRates);
+      return aggregate;
+    }
+  }
+}
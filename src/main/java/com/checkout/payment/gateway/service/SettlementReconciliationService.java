@@ -0,0 +1,386 @@
+package com.checkout.payment.gateway.service;
+
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.ReconciliationInProgressException;
+import com.checkout.payment.gateway.model.PaymentLifecycleState;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.ReconciliationReport;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Matches acquirer settlement files against the authorizations held in {@link PaymentsRepository}.
+ *
+ * <p>Settlement files are expected to contain one {@code authorization_code,amount,currency}
+ * entry per line, with the amount in minor units. The file is memory-mapped and split into chunks
+ * on line boundaries, and the chunks are parsed and matched in parallel.
+ *
+ * <p>An authorization that was never explicitly captured is expected to settle for its full
+ * amount, as it did before manual capture existed. Once captures are recorded the expected amount
+ * is what was captured minus what was refunded. Authorizations expected to settle for nothing,
+ * such as voided ones or captures that were fully refunded, are never reported missing and a
+ * settlement line for one is a mismatch. Only the first line in the file for an authorization is
+ * matched; any further line for it is counted as a duplicate so double settlement shows up in the
+ * report.
+ *
+ * <p>Files are taken from {@code reconciliation.settlement-directory}, where the acquirer's
+ * settlement drop is expected to land. Only one file is reconciled at a time, since each run
+ * already uses {@code reconciliation.parallelism} threads; a request made while one is running is
+ * refused with {@link ReconciliationInProgressException}.
+ */
+@Service
+public class SettlementReconciliationService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SettlementReconciliationService.class);
+
+  private static final int MAX_AUTHORIZATION_CODE_LENGTH = 64;
+  private static final int BOUNDARY_SCAN_BUFFER_SIZE = 4096;
+
+  private final PaymentsRepository paymentsRepository;
+  private final int parallelism;
+  private final long chunkSizeBytes;
+  private final int maxReportedEntries;
+  private final Path settlementDirectory;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  public SettlementReconciliationService(PaymentsRepository paymentsRepository,
+      @Value("${reconciliation.parallelism:0}") int parallelism,
+      @Value("${reconciliation.chunk-size-bytes:67108864}") long chunkSizeBytes,
+      @Value("${reconciliation.max-reported-entries:100}") int maxReportedEntries,
+      @Value("${reconciliation.settlement-directory:settlements}") String settlementDirectory) {
+    if (chunkSizeBytes <= 0 || chunkSizeBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Chunk size must be between 1 and " + Integer.MAX_VALUE);
+    }
+    this.paymentsRepository = paymentsRepository;
+    this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.chunkSizeBytes = chunkSizeBytes;
+    this.maxReportedEntries = maxReportedEntries;
+    this.settlementDirectory = Path.of(settlementDirectory).toAbsolutePath().normalize();
+  }
+
+  /** Reconciles a file from the settlement directory, refusing names that resolve outside it. */
+  public ReconciliationReport reconcile(String fileName) {
+    Path file = settlementDirectory.resolve(fileName).normalize();
+    if (!file.startsWith(settlementDirectory) || !Files.isRegularFile(file)) {
+      throw new EventProcessingException("Invalid settlement file");
+    }
+    return reconcile(file);
+  }
+
+  public ReconciliationReport reconcile(Path settlementFile) {
+    if (!running.compareAndSet(false, true)) {
+      throw new ReconciliationInProgressException("A settlement file is already being reconciled");
+    }
+    try {
+      return reconcileExclusively(settlementFile);
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private ReconciliationReport reconcileExclusively(Path settlementFile) {
+    LOG.debug("Reconciling settlement file {}", settlementFile);
+    long start = System.nanoTime();
+
+    ConcurrentHashMap<String, SettlementLine> settlements = new ConcurrentHashMap<>();
+    ChunkResult total = new ChunkResult(maxReportedEntries);
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try (FileChannel channel = FileChannel.open(settlementFile, StandardOpenOption.READ)) {
+      List<Future<ChunkResult>> futures = new ArrayList<>();
+      for (long[] chunk : splitOnLineBoundaries(channel)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0],
+            chunk[1] - chunk[0]);
+        futures.add(executor.submit(() -> reconcileChunk(buffer, chunk[0], settlements)));
+      }
+      for (Future<ChunkResult> future : futures) {
+        total.merge(future.get());
+      }
+    } catch (IOException | ExecutionException e) {
+      LOG.error("Error reconciling settlement file {}", settlementFile, e);
+      throw new EventProcessingException("Failed to reconcile settlement file");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventProcessingException("Settlement reconciliation was interrupted");
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Classified only once every chunk is done, so the first line in the file decides
+    for (Map.Entry<String, SettlementLine> entry : settlements.entrySet()) {
+      SettlementLine first = entry.getValue();
+      if (first.matches) {
+        total.matched++;
+      } else {
+        total.amountMismatched++;
+        total.addAmountMismatched(entry.getKey());
+      }
+      for (int i = 1; i < first.count; i++) {
+        total.duplicated++;
+        total.addDuplicated(entry.getKey());
+      }
+    }
+
+    List<String> missingCodes = new ArrayList<>();
+    long missing = 0;
+    for (PostPaymentResponse payment : paymentsRepository.getAllWithAuthorizationCode()) {
+      if (expectedSettlementAmount(payment) != 0
+          && !settlements.containsKey(payment.getAuthorizationCode())) {
+        missing++;
+        if (missingCodes.size() < maxReportedEntries) {
+          missingCodes.add(payment.getAuthorizationCode());
+        }
+      }
+    }
+
+    ReconciliationReport report = new ReconciliationReport();
+    report.setTotalLines(total.lines);
+    report.setMatched(total.matched);
+    report.setMissing(missing);
+    report.setAmountMismatched(total.amountMismatched);
+    report.setDuplicated(total.duplicated);
+    report.setUnknown(total.unknown);
+    report.setMalformed(total.malformed);
+    report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+    report.setMissingAuthorizationCodes(missingCodes);
+    report.setAmountMismatchedAuthorizationCodes(total.amountMismatchedCodes);
+    report.setDuplicatedAuthorizationCodes(total.duplicatedCodes);
+    report.setUnknownAuthorizationCodes(total.unknownCodes);
+
+    LOG.info("Settlement file {} reconciled: {}", settlementFile, report);
+    return report;
+  }
+
+  /**
+   * Splits the file into {@code [start, end)} ranges of roughly {@code chunkSizeBytes}, moving
+   * each boundary forward to just after the next line feed so no line straddles two chunks.
+   */
+  List<long[]> splitOnLineBoundaries(FileChannel channel) throws IOException {
+    long size = channel.size();
+    long targetSize = Math.min(chunkSizeBytes, Math.max(1, size / parallelism));
+    List<long[]> chunks = new ArrayList<>();
+    ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER_SIZE);
+
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(start + targetSize, size);
+      if (end < size) {
+        end = nextLineStart(channel, end - 1, size, scan);
+      }
+      // A single line longer than the chunk size cannot be split, so that chunk must grow
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IOException("Settlement line at offset " + start + " exceeds the mappable size");
+      }
+      chunks.add(new long[]{start, end});
+      start = end;
+    }
+    return chunks;
+  }
+
+  private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scan)
+      throws IOException {
+    long position = from;
+    while (position < size) {
+      scan.clear();
+      int read = channel.read(scan, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (scan.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private ChunkResult reconcileChunk(ByteBuffer buffer, long chunkOffset,
+      ConcurrentHashMap<String, SettlementLine> settlements) {
+    ChunkResult result = new ChunkResult(maxReportedEntries);
+    byte[] code = new byte[MAX_AUTHORIZATION_CODE_LENGTH];
+    int limit = buffer.limit();
+    int position = 0;
+
+    while (position < limit) {
+      int lineEnd = position;
+      while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      int contentEnd = lineEnd;
+      if (contentEnd > position && buffer.get(contentEnd - 1) == '\r') {
+        contentEnd--;
+      }
+      if (contentEnd > position) {
+        result.lines++;
+        reconcileLine(buffer, position, contentEnd, chunkOffset + position, code, settlements,
+            result);
+      }
+      position = lineEnd + 1;
+    }
+    return result;
+  }
+
+  private void reconcileLine(ByteBuffer buffer, int start, int end, long fileOffset, byte[] code,
+      ConcurrentHashMap<String, SettlementLine> settlements, ChunkResult result) {
+    int firstComma = indexOf(buffer, (byte) ',', start, end);
+    int secondComma = firstComma < 0 ? -1 : indexOf(buffer, (byte) ',', firstComma + 1, end);
+    int codeLength = firstComma - start;
+    if (secondComma < 0 || codeLength <= 0 || codeLength > code.length
+        || secondComma == firstComma + 1 || end - secondComma - 1 != 3) {
+      result.malformed++;
+      return;
+    }
+
+    long amount = 0;
+    for (int i = firstComma + 1; i < secondComma; i++) {
+      byte digit = buffer.get(i);
+      if (digit < '0' || digit > '9' || amount > Integer.MAX_VALUE) {
+        result.malformed++;
+        return;
+      }
+      amount = amount * 10 + (digit - '0');
+    }
+
+    buffer.get(start, code, 0, codeLength);
+    String authorizationCode = new String(code, 0, codeLength, StandardCharsets.US_ASCII);
+
+    PostPaymentResponse payment = paymentsRepository.getByAuthorizationCode(authorizationCode)
+        .orElse(null);
+    if (payment == null) {
+      result.unknown++;
+      result.addUnknown(authorizationCode);
+      return;
+    }
+
+    boolean matches = expectedSettlementAmount(payment) == amount
+        && currencyMatches(payment.getCurrency(), buffer, secondComma + 1);
+    settlements.merge(authorizationCode, new SettlementLine(fileOffset, matches),
+        SettlementLine::combine);
+  }
+
+  private static long expectedSettlementAmount(PostPaymentResponse payment) {
+    long state = payment.getLifecycleState();
+    if (PaymentLifecycleState.isVoided(state)) {
+      return 0;
+    }
+    int captured = PaymentLifecycleState.capturedAmount(state);
+    if (captured == 0) {
+      return payment.getAmount();
+    }
+    return captured - PaymentLifecycleState.refundedAmount(state);
+  }
+
+  private static boolean currencyMatches(String currency, ByteBuffer buffer, int offset) {
+    if (currency == null || currency.length() != 3) {
+      return false;
+    }
+    for (int i = 0; i < 3; i++) {
+      if (Character.toUpperCase(currency.charAt(i)) != Character.toUpperCase(
+          (char) buffer.get(offset + i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The earliest line in the file for an authorization, and how many lines it has in total. */
+  private static class SettlementLine {
+    private final long offset;
+    private final boolean matches;
+    private final int count;
+
+    SettlementLine(long offset, boolean matches) {
+      this(offset, matches, 1);
+    }
+
+    private SettlementLine(long offset, boolean matches, int count) {
+      this.offset = offset;
+      this.matches = matches;
+      this.count = count;
+    }
+
+    static SettlementLine combine(SettlementLine a, SettlementLine b) {
+      SettlementLine first = a.offset <= b.offset ? a : b;
+      return new SettlementLine(first.offset, first.matches, a.count + b.count);
+    }
+  }
+
+  /** Per-chunk tallies, kept thread-confined and merged once the chunk is done. */
+  private static class ChunkResult {
+    private final int maxReportedEntries;
+    private final List<String> amountMismatchedCodes = new ArrayList<>();
+    private final List<String> duplicatedCodes = new ArrayList<>();
+    private final List<String> unknownCodes = new ArrayList<>();
+    private long lines;
+    private long matched;
+    private long amountMismatched;
+    private long duplicated;
+    private long unknown;
+    private long malformed;
+
+    ChunkResult(int maxReportedEntries) {
+      this.maxReportedEntries = maxReportedEntries;
+    }
+
+    void addAmountMismatched(String authorizationCode) {
+      if (amountMismatchedCodes.size() < maxReportedEntries) {
+        amountMismatchedCodes.add(authorizationCode);
+      }
+    }
+
+    void addDuplicated(String authorizationCode) {
+      if (duplicatedCodes.size() < maxReportedEntries) {
+        duplicatedCodes.add(authorizationCode);
+      }
+    }
+
+    void addUnknown(String authorizationCode) {
+      if (unknownCodes.size() < maxReportedEntries) {
+        unknownCodes.add(authorizationCode);
+      }
+    }
+
+    void merge(ChunkResult other) {
+      lines += other.lines;
+      matched += other.matched;
+      amountMismatched += other.amountMismatched;
+      duplicated += other.duplicated;
+      unknown += other.unknown;
+      malformed += other.malformed;
+      other.amountMismatchedCodes.forEach(this::addAmountMismatched);
+      other.duplicatedCodes.forEach(this::addDuplicated);
+      other.unknownCodes.forEach(this::addUnknown);
+    }
+  }
+}
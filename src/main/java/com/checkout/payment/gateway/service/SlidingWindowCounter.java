@@ -0,0 +1,80 @@
+package com.checkout.payment.gateway.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free count and volume totals over a trailing time window.
+ *
+ * <p>The window is a ring of fixed-width buckets. A bucket whose epoch has fallen out of the
+ * window is replaced with a fresh one by compare-and-set rather than reset in place, so a
+ * concurrent writer can never have its increment wiped by another thread rolling the bucket over.
+ */
+class SlidingWindowCounter {
+
+  private final long bucketNanos;
+  private final AtomicReferenceArray<Bucket> buckets;
+
+  SlidingWindowCounter(long windowNanos, int bucketCount) {
+    this.bucketNanos = windowNanos / bucketCount;
+    this.buckets = new AtomicReferenceArray<>(bucketCount);
+  }
+
+  void add(long nowNanos, long volume) {
+    long epoch = Math.floorDiv(nowNanos, bucketNanos);
+    int index = (int) Math.floorMod(epoch, (long) buckets.length());
+    Bucket bucket = buckets.get(index);
+    while (bucket == null || bucket.epoch != epoch) {
+      if (bucket != null && bucket.epoch > epoch) {
+        // The window moved on while this thread was descheduled; the event is already too old
+        return;
+      }
+      Bucket fresh = new Bucket(epoch);
+      if (buckets.compareAndSet(index, bucket, fresh)) {
+        bucket = fresh;
+      } else {
+        bucket = buckets.get(index);
+      }
+    }
+    bucket.count.increment();
+    bucket.volume.add(volume);
+  }
+
+  long count(long nowNanos) {
+    long oldest = oldestEpoch(nowNanos);
+    long total = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Bucket bucket = buckets.get(i);
+      if (bucket != null && bucket.epoch >= oldest) {
+        total += bucket.count.sum();
+      }
+    }
+    return total;
+  }
+
+  long volume(long nowNanos) {
+    long oldest = oldestEpoch(nowNanos);
+    long total = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Bucket bucket = buckets.get(i);
+      if (bucket != null && bucket.epoch >= oldest) {
+        total += bucket.volume.sum();
+      }
+    }
+    return total;
+  }
+
+  private long oldestEpoch(long nowNanos) {
+    return Math.floorDiv(nowNanos, bucketNanos) - buckets.length() + 1;
+  }
+
+  private static class Bucket {
+    private final long epoch;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder volume = new LongAdder();
+
+    Bucket(long epoch) {
+      this.epoch = epoch;
+    }
+  }
+}
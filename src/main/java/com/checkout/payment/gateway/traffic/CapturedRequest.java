@@ -0,0 +1,40 @@
+package com.checkout.payment.gateway.traffic;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.util.UUID;
+
+/**
+ * A request as handed from the request thread to the capture writer. It holds the raw card number
+ * only until the writer tokenizes it; the CVV is never kept, only how many digits it had.
+ */
+class CapturedRequest {
+  final byte type;
+  final long arrivalNanos;
+  final long latencyNanos;
+  final int httpStatus;
+  final PaymentStatus paymentStatus;
+  final String cardNumber;
+  final int expiryMonth;
+  final int expiryYear;
+  final String currency;
+  final int amount;
+  final int cvvLength;
+  final UUID paymentId;
+
+  CapturedRequest(byte type, long arrivalNanos, long latencyNanos, int httpStatus,
+      PaymentStatus paymentStatus, String cardNumber, int expiryMonth, int expiryYear,
+      String currency, int amount, int cvvLength, UUID paymentId) {
+    this.type = type;
+    this.arrivalNanos = arrivalNanos;
+    this.latencyNanos = latencyNanos;
+    this.httpStatus = httpStatus;
+    this.paymentStatus = paymentStatus;
+    this.cardNumber = cardNumber;
+    this.expiryMonth = expiryMonth;
+    this.expiryYear = expiryYear;
+    this.currency = currency;
+    this.amount = amount;
+    this.cvvLength = cvvLength;
+    this.paymentId = paymentId;
+  }
+}
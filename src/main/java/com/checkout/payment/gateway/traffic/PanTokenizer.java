@@ -0,0 +1,35 @@
+package com.checkout.payment.gateway.traffic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Replaces card numbers with a keyed HMAC-SHA256 token. The key is random per capture and never
+ * written out, so tokens keep repeat cards recognisable within one log but cannot be reversed or
+ * linked across logs. Not thread-safe; it is only used by the capture writer thread.
+ */
+class PanTokenizer {
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final Mac mac;
+
+  PanTokenizer() {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    try {
+      mac = Mac.getInstance(ALGORITHM);
+      mac.init(new SecretKeySpec(key, ALGORITHM));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 is not available", e);
+    }
+  }
+
+  long tokenize(String cardNumber) {
+    return ByteBuffer.wrap(mac.doFinal(cardNumber.getBytes(StandardCharsets.US_ASCII))).getLong();
+  }
+}
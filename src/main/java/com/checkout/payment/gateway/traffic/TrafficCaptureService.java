@@ -0,0 +1,146 @@
+package com.checkout.payment.gateway.traffic;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Opt-in capture of incoming payment and lookup requests into a {@link TrafficLog} for later
+ * replay with {@link TrafficReplayTool}.
+ *
+ * <p>The request thread only builds a small {@link CapturedRequest} and offers it to a lock-free
+ * ring buffer. Tokenizing the card number and writing to disk happen on a dedicated writer thread.
+ * If the writer falls behind and the buffer fills up, requests are dropped from the capture rather
+ * than slowing down the request path.
+ */
+@Service
+public class TrafficCaptureService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TrafficCaptureService.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private final boolean enabled;
+  private final Path file;
+  private final MpscRingBuffer<CapturedRequest> buffer;
+  private final LongAdder captured = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final long startNanos = System.nanoTime();
+  private volatile boolean running;
+  private Thread writer;
+
+  public TrafficCaptureService(@Value("${traffic.capture.enabled:false}") boolean enabled,
+      @Value("${traffic.capture.file:traffic-capture.bin}") String file,
+      @Value("${traffic.capture.buffer-size:65536}") int bufferSize) {
+    this.enabled = enabled;
+    this.file = Path.of(file);
+    this.buffer = enabled ? new MpscRingBuffer<>(bufferSize) : null;
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_SIZE));
+    TrafficLog.writeHeader(out, System.currentTimeMillis());
+    running = true;
+    writer = new Thread(() -> drain(out), "traffic-capture-writer");
+    writer.setDaemon(true);
+    writer.start();
+    LOG.info("Capturing traffic to {}", file);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (!enabled) {
+      return;
+    }
+    running = false;
+    writer.join();
+    LOG.info("Traffic capture to {} stopped: {} requests captured, {} dropped", file,
+        captured.sum(), dropped.sum());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void recordPayment(long arrivalNanos, PostPaymentRequest request, int httpStatus,
+      PostPaymentResponse response) {
+    if (!enabled) {
+      return;
+    }
+    long now = System.nanoTime();
+    enqueue(new CapturedRequest(TrafficLog.TYPE_PAYMENT, arrivalNanos - startNanos,
+        now - arrivalNanos, httpStatus, paymentStatus(response), request.getCardNumber(),
+        request.getExpiryMonth(), request.getExpiryYear(), request.getCurrency(),
+        request.getAmount(), TrafficLog.digitCount(request.getCvv()),
+        response != null ? response.getId() : null));
+  }
+
+  public void recordGet(long arrivalNanos, UUID id, int httpStatus, PostPaymentResponse response) {
+    if (!enabled) {
+      return;
+    }
+    long now = System.nanoTime();
+    enqueue(new CapturedRequest(TrafficLog.TYPE_GET, arrivalNanos - startNanos,
+        now - arrivalNanos, httpStatus, paymentStatus(response), null, 0, 0, null, 0, 0, id));
+  }
+
+  private void enqueue(CapturedRequest request) {
+    if (buffer.offer(request)) {
+      captured.increment();
+    } else {
+      dropped.increment();
+    }
+  }
+
+  // Captures, voids and refunds are not captured or replayed, so a lookup records the
+  // authorization outcome the replay can reproduce rather than the lifecycle status
+  private static PaymentStatus paymentStatus(PostPaymentResponse response) {
+    return response != null ? response.getAuthorizationStatus() : null;
+  }
+
+  private void drain(DataOutputStream out) {
+    PanTokenizer tokenizer = new PanTokenizer();
+    long lastFlush = System.nanoTime();
+    try (out) {
+      while (true) {
+        CapturedRequest request = buffer.poll();
+        if (request != null) {
+          TrafficLog.write(out, request, tokenizer);
+          continue;
+        }
+        if (!running) {
+          break;
+        }
+        if (System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS) {
+          out.flush();
+          lastFlush = System.nanoTime();
+        }
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    } catch (IOException e) {
+      LOG.error("Error writing traffic capture to {}", file, e);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.checkout.payment.gateway.traffic;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary layout of a captured traffic log.
+ *
+ * <p>A header ({@code PGTC} magic, version, capture start in epoch millis) is followed by one
+ * record per request. Every record starts with its type, arrival time relative to the start of
+ * the capture, the original latency and the response outcome, the payment status being one of the
+ * stable codes below rather than an enum ordinal. Payment records then carry a keyed
+ * token of the card number together with its length and last four digits (enough to replay the
+ * same card mix and bank simulator outcome), the expiry date, currency, amount, the number of CVV
+ * digits and the id that was assigned to the payment. Lookup records carry the requested id.
+ */
+final class TrafficLog {
+
+  static final int MAGIC = 0x50475443;
+  static final byte VERSION = 2;
+
+  static final byte TYPE_PAYMENT = 1;
+  static final byte TYPE_GET = 2;
+
+  static final byte PAN_ABSENT = 0;
+  static final byte PAN_NUMERIC = 1;
+  static final byte PAN_OTHER = 2;
+
+  static final byte NO_PAYMENT_STATUS = 0;
+  static final byte STATUS_AUTHORIZED = 1;
+  static final byte STATUS_DECLINED = 2;
+  static final byte STATUS_REJECTED = 3;
+
+  private static final int MAX_STRING_BYTES = 16;
+  private static final int PAN_SUFFIX_LENGTH = 4;
+
+  private TrafficLog() {
+  }
+
+  static void writeHeader(DataOutputStream out, long captureStartEpochMillis) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(captureStartEpochMillis);
+  }
+
+  /** Returns the capture start in epoch millis. */
+  static long readHeader(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a traffic log");
+    }
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported traffic log version " + version);
+    }
+    return in.readLong();
+  }
+
+  static void write(DataOutputStream out, CapturedRequest request, PanTokenizer tokenizer)
+      throws IOException {
+    out.writeByte(request.type);
+    out.writeLong(request.arrivalNanos);
+    out.writeLong(request.latencyNanos);
+    out.writeShort(request.httpStatus);
+    out.writeByte(paymentStatusCode(request.paymentStatus));
+
+    if (request.type == TYPE_PAYMENT) {
+      writeCardNumber(out, request.cardNumber, tokenizer);
+      out.writeShort(clampToShort(request.expiryMonth));
+      out.writeShort(clampToShort(request.expiryYear));
+      writeString(out, request.currency);
+      out.writeInt(request.amount);
+      out.writeByte(request.cvvLength);
+    }
+    writeUuid(out, request.paymentId);
+  }
+
+  /** Returns the next record, or {@code null} at the end of the log. */
+  static TrafficRecord read(DataInputStream in) throws IOException {
+    TrafficRecord record = new TrafficRecord();
+    try {
+      record.type = in.readByte();
+    } catch (EOFException e) {
+      return null;
+    }
+    record.arrivalNanos = in.readLong();
+    record.latencyNanos = in.readLong();
+    record.httpStatus = in.readShort();
+    record.paymentStatus = paymentStatus(in.readByte());
+
+    if (record.type == TYPE_PAYMENT) {
+      record.panKind = in.readByte();
+      if (record.panKind != PAN_ABSENT) {
+        record.panLength = in.readUnsignedByte();
+        record.panToken = in.readLong();
+      }
+      if (record.panKind == PAN_NUMERIC) {
+        record.panSuffix = readString(in);
+      }
+      record.expiryMonth = in.readShort();
+      record.expiryYear = in.readShort();
+      record.currency = readString(in);
+      record.amount = in.readInt();
+      record.cvvLength = in.readByte();
+    } else if (record.type != TYPE_GET) {
+      throw new IOException("Unknown traffic record type " + record.type);
+    }
+    record.paymentId = readUuid(in);
+    return record;
+  }
+
+  private static byte paymentStatusCode(PaymentStatus status) {
+    if (status == null) {
+      return NO_PAYMENT_STATUS;
+    }
+    switch (status) {
+      case AUTHORIZED:
+        return STATUS_AUTHORIZED;
+      case DECLINED:
+        return STATUS_DECLINED;
+      case REJECTED:
+        return STATUS_REJECTED;
+      default:
+        throw new IllegalArgumentException("Not an authorization outcome: " + status);
+    }
+  }
+
+  private static PaymentStatus paymentStatus(byte code) throws IOException {
+    switch (code) {
+      case NO_PAYMENT_STATUS:
+        return null;
+      case STATUS_AUTHORIZED:
+        return PaymentStatus.AUTHORIZED;
+      case STATUS_DECLINED:
+        return PaymentStatus.DECLINED;
+      case STATUS_REJECTED:
+        return PaymentStatus.REJECTED;
+      default:
+        throw new IOException("Unknown payment status code " + code);
+    }
+  }
+
+  /**
+   * Rebuilds a card number with the recorded length and last four digits. The remaining digits
+   * are derived from the token, so the same card always replays as the same synthetic number.
+   */
+  static String replayCardNumber(TrafficRecord record) {
+    if (record.panKind == PAN_ABSENT) {
+      return null;
+    }
+    if (record.panKind == PAN_OTHER) {
+      return "x".repeat(record.panLength);
+    }
+    StringBuilder cardNumber = new StringBuilder(record.panLength);
+    long seed = record.panToken;
+    int prefixLength = record.panLength - record.panSuffix.length();
+    for (int i = 0; i < prefixLength; i++) {
+      seed = seed * 6364136223846793005L + 1442695040888963407L;
+      cardNumber.append((char) ('0' + (int) ((seed >>> 33) % 10)));
+    }
+    return cardNumber.append(record.panSuffix).toString();
+  }
+
+  /** Returns a CVV with the recorded number of digits; the real value is never captured. */
+  static int replayCvv(TrafficRecord record) {
+    int cvv = 0;
+    for (int i = 1; i <= record.cvvLength; i++) {
+      cvv = cvv * 10 + i % 10;
+    }
+    return cvv;
+  }
+
+  static int digitCount(int value) {
+    int digits = value < 0 ? 2 : 1;
+    for (long remaining = Math.abs((long) value); remaining >= 10; remaining /= 10) {
+      digits++;
+    }
+    return digits;
+  }
+
+  private static int clampToShort(int value) {
+    return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+  }
+
+  private static void writeCardNumber(DataOutputStream out, String cardNumber,
+      PanTokenizer tokenizer) throws IOException {
+    if (cardNumber == null) {
+      out.writeByte(PAN_ABSENT);
+      return;
+    }
+    boolean numeric = !cardNumber.isEmpty() && cardNumber.chars().allMatch(Character::isDigit);
+    out.writeByte(numeric ? PAN_NUMERIC : PAN_OTHER);
+    out.writeByte(Math.min(cardNumber.length(), 255));
+    out.writeLong(tokenizer.tokenize(cardNumber));
+    if (numeric) {
+      writeString(out,
+          cardNumber.substring(Math.max(0, cardNumber.length() - PAN_SUFFIX_LENGTH)));
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeByte(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, MAX_STRING_BYTES);
+    out.writeByte(length);
+    out.write(bytes, 0, length);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte length = in.readByte();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+    out.writeBoolean(id != null);
+    if (id != null) {
+      out.writeLong(id.getMostSignificantBits());
+      out.writeLong(id.getLeastSignificantBits());
+    }
+  }
+
+  private static UUID readUuid(DataInputStream in) throws IOException {
+    return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+  }
+}
@@ -0,0 +1,43 @@
+package com.checkout.payment.gateway.traffic;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import java.util.UUID;
+
+/** A request read back from a traffic log, with the card number already tokenized. */
+class TrafficRecord {
+  byte type;
+  long arrivalNanos;
+  long latencyNanos;
+  int httpStatus;
+  PaymentStatus paymentStatus;
+  byte panKind;
+  int panLength;
+  long panToken;
+  String panSuffix;
+  int expiryMonth;
+  int expiryYear;
+  String currency;
+  int amount;
+  int cvvLength;
+  UUID paymentId;
+
+  boolean isPayment() {
+    return type == TrafficLog.TYPE_PAYMENT;
+  }
+
+  @Override
+  public String toString() {
+    return "TrafficRecord{" +
+        "type=" + type +
+        ", arrivalNanos=" + arrivalNanos +
+        ", httpStatus=" + httpStatus +
+        ", paymentStatus=" + paymentStatus +
+        ", panKind=" + panKind +
+        ", panLength=" + panLength +
+        ", panSuffix='" + panSuffix + '\'' +
+        ", currency='" + currency + '\'' +
+        ", amount=" + amount +
+        ", paymentId=" + paymentId +
+        '}';
+  }
+}
@@ -0,0 +1,270 @@
+package com.checkout.payment.gateway.traffic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays a captured {@link TrafficLog} against a running gateway, which should itself be pointed
+ * at the local bank simulator.
+ *
+ * <p>Requests are sent on the recorded schedule scaled by the speed factor ({@code 1x},
+ * {@code 10x}, ...) or back to back with {@code max}. When paced, latency is measured from the
+ * scheduled send time so a slow gateway cannot hide its queueing delay. Each response is compared
+ * with the recorded one, and ids of replayed payments are mapped so recorded lookups hit the
+ * payments created during the replay.
+ *
+ * <p>Usage: {@code --file=traffic-capture.bin --target=http://localhost:8090 --speed=10x
+ * --concurrency=256}
+ */
+public final class TrafficReplayTool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TrafficReplayTool.class);
+
+  private static final int MAX_LOGGED_DIVERGENCES = 20;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final HttpClient httpClient = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(10))
+      .build();
+  private final String target;
+  private final double speed;
+  private final Semaphore inFlight;
+
+  private final Map<UUID, CompletableFuture<UUID>> replayedIds = new ConcurrentHashMap<>();
+  private final LongAdder statusDivergences = new LongAdder();
+  private final LongAdder paymentStatusDivergences = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder loggedDivergences = new LongAdder();
+
+  /** A {@code speed} of zero or less replays as fast as possible. */
+  TrafficReplayTool(String target, double speed, int concurrency) {
+    this.target = target;
+    this.speed = speed;
+    this.inFlight = new Semaphore(concurrency);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+      options.put(parts[0], parts.length > 1 ? parts[1] : "");
+    }
+    Path file = Path.of(options.getOrDefault("file", "traffic-capture.bin"));
+    String target = options.getOrDefault("target", "http://localhost:8090");
+    double speed = parseSpeed(options.getOrDefault("speed", "1x"));
+    int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+
+    List<TrafficRecord> records = load(file);
+    LOG.info("Replaying {} requests from {} against {} at {}", records.size(), file, target,
+        speed > 0 ? speed + "x" : "maximum speed");
+    new TrafficReplayTool(target, speed, concurrency).replay(records);
+  }
+
+  static double parseSpeed(String speed) {
+    if (speed.equalsIgnoreCase("max")) {
+      return 0;
+    }
+    return Double.parseDouble(speed.toLowerCase().replace("x", ""));
+  }
+
+  /**
+   * Reads every record from the log, in arrival order. Records are written as requests complete,
+   * so a slow payment lands in the file after requests that arrived later than it did.
+   */
+  static List<TrafficRecord> load(Path file) throws IOException {
+    List<TrafficRecord> records = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      TrafficLog.readHeader(in);
+      for (TrafficRecord record = TrafficLog.read(in); record != null;
+          record = TrafficLog.read(in)) {
+        records.add(record);
+      }
+    }
+    // List.sort is stable, so requests with the same timestamp keep their completion order
+    records.sort(Comparator.comparingLong(record -> record.arrivalNanos));
+    return records;
+  }
+
+  /** Replays records in the order given, which must be arrival order as returned by load. */
+  void replay(List<TrafficRecord> records) throws InterruptedException {
+    long[] latencies = new long[records.size()];
+    long[] recordedLatencies = new long[records.size()];
+    List<CompletableFuture<Void>> pending = new ArrayList<>(records.size());
+    long replayStart = System.nanoTime();
+    long firstArrival = records.isEmpty() ? 0 : records.get(0).arrivalNanos;
+
+    for (int i = 0; i < records.size(); i++) {
+      TrafficRecord record = records.get(i);
+      recordedLatencies[i] = record.latencyNanos;
+      long scheduled = System.nanoTime();
+      if (speed > 0) {
+        scheduled = replayStart + (long) ((record.arrivalNanos - firstArrival) / speed);
+        for (long wait = scheduled - System.nanoTime(); wait > 0;
+            wait = scheduled - System.nanoTime()) {
+          LockSupport.parkNanos(wait);
+        }
+      }
+      inFlight.acquire();
+      int index = i;
+      long sendStart = scheduled;
+      pending.add(send(record).handle((response, error) -> {
+        latencies[index] = System.nanoTime() - sendStart;
+        inFlight.release();
+        compare(record, response, error);
+        return null;
+      }));
+    }
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+    long elapsed = System.nanoTime() - replayStart;
+
+    LOG.info("Replayed {} requests in {} ms ({} requests/s)", records.size(), elapsed / 1_000_000,
+        records.isEmpty() ? 0 : records.size() * 1_000_000_000L / Math.max(1, elapsed));
+    LOG.info("Replay latency: {}", percentiles(latencies));
+    LOG.info("Recorded latency: {}", percentiles(recordedLatencies));
+    LOG.info("Divergences: {} HTTP status, {} payment status, {} failed requests",
+        statusDivergences.sum(), paymentStatusDivergences.sum(), failures.sum());
+  }
+
+  long statusDivergences() {
+    return statusDivergences.sum();
+  }
+
+  long paymentStatusDivergences() {
+    return paymentStatusDivergences.sum();
+  }
+
+  long failures() {
+    return failures.sum();
+  }
+
+  private CompletableFuture<HttpResponse<String>> send(TrafficRecord record) {
+    if (record.isPayment()) {
+      CompletableFuture<UUID> replayedId = new CompletableFuture<>();
+      if (record.paymentId != null) {
+        replayedIds.put(record.paymentId, replayedId);
+      }
+      HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/"))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(paymentBody(record)))
+          .build();
+      return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+          .whenComplete((response, error) -> replayedId.complete(
+              response != null ? responseId(response) : null));
+    }
+
+    CompletableFuture<UUID> replayedId = record.paymentId != null
+        ? replayedIds.get(record.paymentId) : null;
+    CompletableFuture<UUID> id = replayedId != null
+        ? replayedId.thenApply(replayed -> replayed != null ? replayed : record.paymentId)
+        : CompletableFuture.completedFuture(record.paymentId);
+    return id.thenCompose(paymentId -> httpClient.sendAsync(
+        HttpRequest.newBuilder(URI.create(target + "/payment/" + paymentId)).GET().build(),
+        HttpResponse.BodyHandlers.ofString()));
+  }
+
+  private String paymentBody(TrafficRecord record) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    String cardNumber = TrafficLog.replayCardNumber(record);
+    if (cardNumber != null) {
+      body.put("card_number", cardNumber);
+    }
+    body.put("expiry_date", String.format("%02d/%d", record.expiryMonth, record.expiryYear));
+    if (record.currency != null) {
+      body.put("currency", record.currency);
+    }
+    body.put("amount", record.amount);
+    body.put("cvv", TrafficLog.replayCvv(record));
+    try {
+      return objectMapper.writeValueAsString(body);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialise replayed request", e);
+    }
+  }
+
+  private UUID responseId(HttpResponse<String> response) {
+    JsonNode id = readBody(response).path("id");
+    try {
+      return id.isTextual() ? UUID.fromString(id.asText()) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private void compare(TrafficRecord record, HttpResponse<String> response, Throwable error) {
+    if (error != null) {
+      failures.increment();
+      logDivergence(record, "request failed: " + error.getMessage());
+      return;
+    }
+    if (response.statusCode() != record.httpStatus) {
+      statusDivergences.increment();
+      logDivergence(record, "HTTP " + response.statusCode());
+      return;
+    }
+    if (record.paymentStatus != null) {
+      String recorded = record.paymentStatus.getName();
+      String replayed = readBody(response).path("status").asText();
+      if (!recorded.equals(replayed)) {
+        paymentStatusDivergences.increment();
+        logDivergence(record, "payment status " + replayed);
+      }
+    }
+  }
+
+  private JsonNode readBody(HttpResponse<String> response) {
+    try {
+      return objectMapper.readTree(response.body() == null ? "" : response.body());
+    } catch (IOException e) {
+      return objectMapper.missingNode();
+    }
+  }
+
+  private void logDivergence(TrafficRecord record, String replayed) {
+    loggedDivergences.increment();
+    if (loggedDivergences.sum() <= MAX_LOGGED_DIVERGENCES) {
+      LOG.warn("Divergence: replay returned {} for {}", replayed, record);
+    }
+  }
+
+  static String percentiles(long[] latencyNanos) {
+    if (latencyNanos.length == 0) {
+      return "no requests";
+    }
+    long[] sorted = latencyNanos.clone();
+    Arrays.sort(sorted);
+    return String.format("p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+        percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+        percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+  }
+
+  private static double percentile(long[] sorted, double quantile) {
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+  }
+}
@@ -0,0 +1,26 @@
+package com.checkout.payment.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.checkout.payment.gateway.service.CardVelocityFilter;
+import com.checkout.payment.gateway.service.FxRateService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class PaymentGatewayApplicationTest {
+
+  @Autowired
+  private CardVelocityFilter cardVelocityFilter;
+
+  @Autowired
+  private FxRateService fxRateService;
+
+  @Test
+  void whenApplicationStartsThenEveryBeanCanBeCreated() {
+    // Services with a separate test constructor must still be constructible by Spring
+    assertNotNull(cardVelocityFilter);
+    assertNotNull(fxRateService);
+  }
+}
@@ -7,6 +7,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.checkout.payment.gateway.enums.PaymentStatus;
 import com.checkout.payment.gateway.model.PostPaymentResponse;
 import com.checkout.payment.gateway.repository.PaymentsRepository;
+import com.checkout.payment.gateway.service.PaymentStatisticsService;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +28,9 @@ class PaymentGatewayControllerTest {
   @Autowired
   private PaymentsRepository paymentsRepository;
 
+  @Autowired
+  private PaymentStatisticsService paymentStatisticsService;
+
 
   @BeforeEach
   void setUp() {
@@ -42,7 +46,7 @@ class PaymentGatewayControllerTest {
     payment.setAmount(1050);
     payment.setCurrency("USD");
     payment.setStatus(PaymentStatus.AUTHORIZED);
-    payment.setCardNumberLastFour(4321);
+    payment.setCardNumberLastFour("4321");
 
     paymentsRepository.add(payment);
 
@@ -118,12 +122,12 @@ class PaymentGatewayControllerTest {
 
   @Test
   void whenInvalidCurrencyIsProvidedThenBadRequestIsReturned() throws Exception {
-    // Given: A payment request with unsupported currency
+    // Given: A payment request with a code that is not an ISO 4217 currency
     String paymentRequest = """
         {
           "card_number": "4111111111111111",
           "expiry_date": "12/2025",
-          "currency": "JPY",
+          "currency": "XYZ",
           "amount": 1050,
           "cvv": 123
         }
@@ -178,4 +182,80 @@ class PaymentGatewayControllerTest {
             .content(paymentRequest))
         .andExpect(status().isBadRequest());
   }
+
+  @Test
+  void whenStatisticsAreRequestedThenAggregatesAreReturned() throws Exception {
+    // When: We request the live payment statistics
+    // Then: Overall, per-currency and per-card-bucket aggregates are returned
+    mvc.perform(MockMvcRequestBuilders.get("/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.total.statuses.Authorized.windowCounts['1m']").exists())
+        .andExpect(jsonPath("$.currencies").exists())
+        .andExpect(jsonPath("$.cardBuckets['9'].statuses.Declined.count").exists());
+  }
+
+  @Test
+  void whenBankCannotProcessPaymentThenItIsCountedAsRejected() throws Exception {
+    // Given: A card the bank simulator answers with 503 for
+    String paymentRequest = """
+        {
+          "card_number": "4111111111111110",
+          "expiry_date": "12/2030",
+          "currency": "USD",
+          "amount": 1050,
+          "cvv": 123
+        }
+        """;
+    long rejectedBefore = paymentStatisticsService.getStatistics().getTotal().getStatuses()
+        .get("Rejected").getCount();
+
+    // When: We submit the payment
+    mvc.perform(MockMvcRequestBuilders.post("/")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(paymentRequest))
+        .andExpect(status().isBadRequest());
+
+    // Then: The failure shows up in the overall statistics
+    mvc.perform(MockMvcRequestBuilders.get("/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.total.statuses.Rejected.count").value(rejectedBefore + 1));
+  }
+
+  @Test
+  void whenAuthorizedPaymentIsCapturedThenRemainingBalanceIsReturned() throws Exception {
+    // Given: An authorized payment exists in the repository
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setAmount(1050);
+    payment.setCurrency("USD");
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour("4321");
+    paymentsRepository.add(payment);
+
+    // When: Part of it is captured
+    // Then: The payment is partially captured with the rest still capturable
+    mvc.perform(MockMvcRequestBuilders.post("/payment/" + payment.getId() + "/capture")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 1000}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("Partially Captured"))
+        .andExpect(jsonPath("$.capturedAmount").value(1000))
+        .andExpect(jsonPath("$.capturableAmount").value(50));
+
+    // And: Capturing more than remains is refused with a conflict
+    mvc.perform(MockMvcRequestBuilders.post("/payment/" + payment.getId() + "/capture")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 51}"))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.message").exists());
+  }
+
+  @Test
+  void whenSettlementFileIsOutsideSettlementDirectoryThenItIsNotReconciled() throws Exception {
+    // When: A reconciliation is requested for a path escaping the settlement directory
+    // Then: The file is not read and not found is returned
+    mvc.perform(MockMvcRequestBuilders.post("/reconciliation")
+            .param("file", "../build.gradle"))
+        .andExpect(status().isNotFound());
+  }
 }
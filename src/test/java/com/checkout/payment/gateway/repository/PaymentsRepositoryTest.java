@@ -0,0 +1,250 @@
+package com.checkout.payment.gateway.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.PaymentLifecycleException;
+import com.checkout.payment.gateway.model.PaymentLifecycleState;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class PaymentsRepositoryTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentsRepositoryTest.class);
+
+  private PaymentsRepository paymentsRepository;
+
+  @BeforeEach
+  void setUp() {
+    paymentsRepository = new PaymentsRepository();
+  }
+
+  @Test
+  void whenPaymentIsCapturedAndRefundedThenStatusAndBalancesFollow() {
+    // Given: An authorized payment
+    PostPaymentResponse payment = storePayment(PaymentStatus.AUTHORIZED, 1000);
+
+    // When: Part of it is captured, then the rest, then part is refunded
+    paymentsRepository.capture(payment.getId(), 400);
+    assertEquals(PaymentStatus.PARTIALLY_CAPTURED, payment.getStatus());
+    assertEquals(600, payment.getCapturableAmount());
+    paymentsRepository.capture(payment.getId(), 600);
+    assertEquals(PaymentStatus.CAPTURED, payment.getStatus());
+    paymentsRepository.refund(payment.getId(), 250);
+
+    // Then: The balances reflect every operation
+    assertEquals(PaymentStatus.PARTIALLY_REFUNDED, payment.getStatus());
+    assertEquals(1000, payment.getCapturedAmount());
+    assertEquals(250, payment.getRefundedAmount());
+    assertEquals(750, payment.getRefundableAmount());
+    assertEquals(0, payment.getCapturableAmount());
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.refund(payment.getId(), 751));
+
+    // And: A full refund completes the lifecycle
+    paymentsRepository.refund(payment.getId(), 750);
+    assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+  }
+
+  @Test
+  void whenOperationWouldBreakTheBalancesThenItIsRefused() {
+    // Given: An authorized payment, a voided payment and a declined payment
+    PostPaymentResponse authorized = storePayment(PaymentStatus.AUTHORIZED, 1000);
+    PostPaymentResponse voided = storePayment(PaymentStatus.AUTHORIZED, 1000);
+    paymentsRepository.voidAuthorization(voided.getId());
+    PostPaymentResponse declined = storePayment(PaymentStatus.DECLINED, 1000);
+
+    // When/Then: Over-capturing, over-refunding and illegal transitions are refused
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.capture(authorized.getId(), 1001));
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.refund(authorized.getId(), 1));
+    paymentsRepository.capture(authorized.getId(), 100);
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.voidAuthorization(authorized.getId()));
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.capture(voided.getId(), 1));
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.capture(declined.getId(), 1));
+    assertEquals(PaymentStatus.VOIDED, voided.getStatus());
+    assertEquals(PaymentStatus.DECLINED, declined.getStatus());
+    assertTrue(paymentsRepository.capture(UUID.randomUUID(), 1).isEmpty());
+  }
+
+  @Test
+  void whenPartialCaptureIsRefundedThenNoFurtherCaptureIsAllowed() {
+    // Given: An authorization of which part was captured and then refunded in full
+    PostPaymentResponse payment = storePayment(PaymentStatus.AUTHORIZED, 1000);
+    paymentsRepository.capture(payment.getId(), 400);
+    paymentsRepository.refund(payment.getId(), 400);
+
+    // Then: The payment is refunded with nothing left to capture
+    assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+    assertEquals(0, payment.getCapturableAmount());
+    assertEquals(0, payment.getRefundableAmount());
+
+    // And: Capturing the uncaptured part of the authorization is refused
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.capture(payment.getId(), 600));
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.captureRemaining(payment.getId()));
+    assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+    assertEquals(400, payment.getCapturedAmount());
+  }
+
+  @Test
+  void whenRemainderIsRequestedThenItIsWorkedOutAtTheTimeOfTheOperation() {
+    // Given: An authorized payment that another request has partially captured
+    PostPaymentResponse payment = storePayment(PaymentStatus.AUTHORIZED, 1000);
+    paymentsRepository.capture(payment.getId(), 300);
+
+    // When: The remainder is captured, then the remainder refunded after a partial refund
+    paymentsRepository.captureRemaining(payment.getId());
+    assertEquals(1000, payment.getCapturedAmount());
+    paymentsRepository.refund(payment.getId(), 100);
+    paymentsRepository.refundRemaining(payment.getId());
+
+    // Then: Each took exactly what was left, and there is nothing more to take
+    assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+    assertEquals(1000, payment.getRefundedAmount());
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.captureRemaining(payment.getId()));
+    assertThrows(PaymentLifecycleException.class,
+        () -> paymentsRepository.refundRemaining(payment.getId()));
+  }
+
+  @Test
+  void whenConflictingOperationsRaceThenBalancesAreNeverViolated() throws Exception {
+    int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+    int operationsPerThread = 200_000;
+    int paymentCount = 16;
+    int amount = 1_000_000_000;
+
+    // Given: A handful of authorized payments that every thread will fight over
+    List<PostPaymentResponse> payments = new ArrayList<>();
+    for (int i = 0; i < paymentCount; i++) {
+      payments.add(storePayment(PaymentStatus.AUTHORIZED, amount));
+    }
+    AtomicLongArray capturedBySuccess = new AtomicLongArray(paymentCount);
+    AtomicLongArray refundedBySuccess = new AtomicLongArray(paymentCount);
+    AtomicLongArray voidedBySuccess = new AtomicLongArray(paymentCount);
+    LongAdder refused = new LongAdder();
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicBoolean violationSeen = new AtomicBoolean(false);
+
+    // A reader continuously checks the invariants while the writers race
+    Thread reader = new Thread(() -> {
+      int[] capturedAtFirstRefund = new int[paymentCount];
+      Arrays.fill(capturedAtFirstRefund, -1);
+      while (running.get()) {
+        for (int i = 0; i < paymentCount; i++) {
+          long state = payments.get(i).getLifecycleState();
+          int captured = PaymentLifecycleState.capturedAmount(state);
+          int refunded = PaymentLifecycleState.refundedAmount(state);
+          if (refunded > 0 && capturedAtFirstRefund[i] < 0) {
+            capturedAtFirstRefund[i] = captured;
+          }
+          if (captured > amount || refunded > captured
+              || (PaymentLifecycleState.isVoided(state) && captured > 0)
+              || (capturedAtFirstRefund[i] >= 0 && captured != capturedAtFirstRefund[i])) {
+            violationSeen.set(true);
+          }
+        }
+      }
+    });
+    reader.start();
+
+    // When: Many threads fire random captures, refunds and the odd void at the same payments
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        for (int i = 0; i < operationsPerThread; i++) {
+          int index = random.nextInt(paymentCount);
+          UUID id = payments.get(index).getId();
+          // Odd payments see captures and refunds racing, and stop taking captures after their
+          // first refund; even ones only see captures plus, for a few, the odd void
+          int operation = index % 2 == 1 ? random.nextInt(99)
+              : index % 8 == 0 && random.nextInt(100) == 0 ? 99 : 0;
+          int value = random.nextInt(1, 500);
+          try {
+            if (operation < 50) {
+              paymentsRepository.capture(id, value);
+              capturedBySuccess.addAndGet(index, value);
+            } else if (operation < 99) {
+              paymentsRepository.refund(id, value);
+              refundedBySuccess.addAndGet(index, value);
+            } else {
+              paymentsRepository.voidAuthorization(id);
+              voidedBySuccess.incrementAndGet(index);
+            }
+          } catch (PaymentLifecycleException e) {
+            refused.increment();
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    long startNanos = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+    running.set(false);
+    reader.join();
+
+    // Then: Every successful operation is reflected exactly once and no balance went negative
+    assertFalse(violationSeen.get(), "A reader observed a violated balance");
+    for (int i = 0; i < paymentCount; i++) {
+      PostPaymentResponse payment = payments.get(i);
+      assertEquals(capturedBySuccess.get(i), payment.getCapturedAmount());
+      assertEquals(refundedBySuccess.get(i), payment.getRefundedAmount());
+      assertTrue(payment.getCapturedAmount() <= amount);
+      assertTrue(payment.getRefundedAmount() <= payment.getCapturedAmount());
+      assertTrue(voidedBySuccess.get(i) <= 1);
+      if (voidedBySuccess.get(i) == 1) {
+        assertEquals(0, payment.getCapturedAmount());
+      }
+    }
+
+    long operations = (long) threads * operationsPerThread;
+    LOG.info("{} lifecycle operations on {} threads against {} payments in {} ms: {} ops/s,"
+            + " {} refused", operations, threads, paymentCount, elapsedNanos / 1_000_000,
+        operations * 1_000_000_000L / elapsedNanos, refused.sum());
+  }
+
+  private PostPaymentResponse storePayment(PaymentStatus status, int amount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(status);
+    payment.setAmount(amount);
+    payment.setCurrency("USD");
+    payment.setCardNumberLastFour("4321");
+    paymentsRepository.add(payment);
+    return payment;
+  }
+}
@@ -0,0 +1,188 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class CardVelocityFilterTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CardVelocityFilterTest.class);
+
+  private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+  @Test
+  void whenCardExceedsThresholdThenFurtherAttemptsAreRefused() {
+    // Given: A filter allowing five attempts per minute
+    CardVelocityFilter filter = filter(true, 5);
+
+    // When: The same card is tried repeatedly
+    for (int i = 0; i < 5; i++) {
+      assertTrue(filter.tryAcquire("4111111111111111"));
+    }
+
+    // Then: The sixth attempt is refused while another card is unaffected
+    assertFalse(filter.tryAcquire("4111111111111111"));
+    assertTrue(filter.tryAcquire("5555555555554444"));
+    assertEquals(6, filter.estimate("4111111111111111"));
+  }
+
+  @Test
+  void whenWindowPassesThenCardIsAllowedAgain() {
+    // Given: A card that has hit the threshold
+    CardVelocityFilter filter = filter(true, 3);
+    for (int i = 0; i < 4; i++) {
+      filter.tryAcquire("4111111111111111");
+    }
+    assertFalse(filter.tryAcquire("4111111111111111"));
+
+    // When: Half the window passes the attempts are still counted
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+    assertFalse(filter.tryAcquire("4111111111111111"));
+
+    // Then: Once every bucket holding them has expired the card is allowed again
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    assertTrue(filter.tryAcquire("4111111111111111"));
+    assertEquals(1, filter.estimate("4111111111111111"));
+  }
+
+  @Test
+  void whenBucketsArePreparedAheadThenAttemptsAreCountedAcrossTheRollover() {
+    // Given: A card with two attempts and the next bucket already prepared in the background
+    CardVelocityFilter filter = filter(true, 3);
+    filter.tryAcquire("4111111111111111");
+    filter.tryAcquire("4111111111111111");
+    filter.prepareBuckets();
+
+    // Then: The prepared, still empty, bucket does not disturb the current count
+    assertEquals(2, filter.estimate("4111111111111111"));
+
+    // When: Time moves through every bucket of the window, preparing ahead each time
+    for (int bucket = 0; bucket < 5; bucket++) {
+      clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+      filter.prepareBuckets();
+    }
+
+    // Then: The earlier attempts still count until the window has passed them
+    assertTrue(filter.tryAcquire("4111111111111111"));
+    assertFalse(filter.tryAcquire("4111111111111111"));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    filter.prepareBuckets();
+    assertEquals(2, filter.estimate("4111111111111111"));
+  }
+
+  @Test
+  void whenFilterIsDisabledThenEveryAttemptIsAllowed() {
+    CardVelocityFilter filter = filter(false, 1);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(filter.tryAcquire("4111111111111111"));
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  void falsePositiveRateAndOverheadPerCheck() {
+    int distinctCards = Integer.getInteger("benchmark.velocity.cards", 1_000_000);
+    CardVelocityFilter filter = new CardVelocityFilter(true, 20, TimeUnit.MINUTES.toNanos(1), 6,
+        4, 65536, 42, clock::get);
+
+    // Given: Within one window, each legitimate card is used up to three times while a handful
+    // of cards are hammered by a card-testing attack
+    String[] cards = new String[distinctCards];
+    for (int i = 0; i < distinctCards; i++) {
+      cards[i] = String.format("4%015d", i * 7919L);
+    }
+    String[] attackCards = {"4000000000000002", "4000000000000010", "4000000000000028"};
+    long falseRejections = 0;
+    long legitimateAttempts = 0;
+    long attackAttempts = 0;
+    long attackRejections = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < distinctCards; i++) {
+      String card = cards[i];
+      for (int attempt = 0; attempt <= i % 3; attempt++) {
+        legitimateAttempts++;
+        if (!filter.tryAcquire(card)) {
+          falseRejections++;
+        }
+      }
+      if (i % 2 == 0) {
+        attackAttempts++;
+        if (!filter.tryAcquire(attackCards[i % attackCards.length])) {
+          attackRejections++;
+        }
+      }
+      clock.addAndGet(TimeUnit.MINUTES.toNanos(1) / distinctCards);
+    }
+    long elapsed = System.nanoTime() - start;
+    long checks = legitimateAttempts + attackAttempts;
+
+    // Then: Report the false-positive rate, the attack block rate and the cost per check
+    LOG.info("{} legitimate attempts over {} cards: {} falsely refused ({}%); {} of {} attack"
+            + " attempts refused; ~{} ns per check; sketch memory {} KB regardless of card count",
+        legitimateAttempts, distinctCards, falseRejections,
+        String.format("%.4f", 100.0 * falseRejections / legitimateAttempts), attackRejections,
+        attackAttempts, elapsed / checks, filter.memoryBytes() / 1024);
+    assertTrue(attackRejections > 0);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void rolloverCostUnderConcurrency() throws Exception {
+    // Short 100 ms buckets on the real clock so many rollovers happen during the run
+    long runNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("benchmark.velocity.seconds", 3));
+    for (boolean prepared : new boolean[]{false, true}) {
+      CardVelocityFilter filter = new CardVelocityFilter(true, Integer.MAX_VALUE,
+          TimeUnit.MILLISECONDS.toNanos(600), 6, 4, 65536, 42, System::nanoTime);
+      if (prepared) {
+        filter.start();
+      }
+      Thread[] workers = new Thread[4];
+      LongAdder calls = new LongAdder();
+      long end = System.nanoTime() + runNanos;
+      for (int t = 0; t < workers.length; t++) {
+        workers[t] = new Thread(() -> {
+          for (long i = 0; System.nanoTime() < end; i++) {
+            filter.tryAcquire(i % 2 == 0 ? "4111111111111111" : "5555555555554444");
+            calls.increment();
+          }
+        });
+        workers[t].start();
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      filter.stop();
+
+      // Each request-thread rollover allocates and zeroes a fresh sketch on the request path
+      long allocationStart = System.nanoTime();
+      int allocations = 50;
+      long sink = 0;
+      for (int i = 0; i < allocations; i++) {
+        sink += new AtomicIntegerArray(4 * 65536).length();
+      }
+      LOG.info("Buckets {}: {} calls on {} threads over {} rollovers, {} rollovers on a request"
+              + " thread, each allocating a {} KB sketch in ~{} us (checksum {})",
+          prepared ? "prepared in the background" : "allocated on demand", calls.sum(),
+          workers.length, runNanos / TimeUnit.MILLISECONDS.toNanos(100),
+          filter.requestThreadRollovers(), 4 * 65536 * Integer.BYTES / 1024,
+          (System.nanoTime() - allocationStart) / allocations / 1000, sink);
+      if (prepared) {
+        assertTrue(filter.requestThreadRollovers() <= 1);
+      }
+    }
+  }
+
+  private CardVelocityFilter filter(boolean enabled, int maxAttempts) {
+    return new CardVelocityFilter(enabled, maxAttempts, TimeUnit.MINUTES.toNanos(1), 6, 4, 1024,
+        42, clock::get);
+  }
+}
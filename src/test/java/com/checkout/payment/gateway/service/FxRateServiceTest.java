@@ -0,0 +1,183 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class FxRateServiceTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FxRateServiceTest.class);
+
+  private final CurrencyRegistry registry = new CurrencyRegistry();
+  private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenCodesAreLookedUpThenIsoMinorUnitsAreReturned() {
+    assertEquals(2, registry.minorUnits("GBP"));
+    assertEquals(2, registry.minorUnits("gbp"));
+    assertEquals(0, registry.minorUnits("JPY"));
+    assertEquals(3, registry.minorUnits("KWD"));
+    assertEquals(4, registry.minorUnits("CLF"));
+    assertEquals(826, registry.numericCode("GBP"));
+    assertEquals("EUR", registry.canonicalCode("eUr"));
+
+    // Gold is a currency code but has no minor units, so it cannot be charged
+    assertTrue(registry.isCurrency("XAU"));
+    assertFalse(registry.isPayable("XAU"));
+    assertFalse(registry.isCurrency("XYZ"));
+    assertFalse(registry.isPayable("GB1"));
+    assertFalse(registry.isPayable("GBPX"));
+    assertFalse(registry.isPayable(null));
+    assertNull(registry.canonicalCode("XYZ"));
+    assertTrue(registry.size() > 170);
+  }
+
+  @Test
+  void whenAmountsAreConvertedThenMinorUnitsAndRoundingAreApplied() throws IOException {
+    // Given: Rates quoted against USD, settling in GBP
+    FxRateService service = service(rates("USD,1", "GBP,0.8", "JPY,150", "KWD,0.3"));
+
+    // Then: Each currency's minor units are converted into pence, rounding half up
+    assertEquals(800, service.toSettlement(1000, "USD"));
+    assertEquals(1, service.toSettlement(1, "USD"));
+    assertEquals(8000, service.toSettlement(15000, "JPY"));
+    assertEquals(267, service.toSettlement(1000, "kwd"));
+    assertEquals(12345, service.toSettlement(12345, "GBP"));
+    assertEquals(FxRateService.NO_RATE, service.toSettlement(1000, "EUR"));
+    assertEquals(FxRateService.NO_RATE, service.toSettlement(1000, "XYZ"));
+
+    // And: The fixed-point result matches exact decimal arithmetic across the int range
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      int amount = random.nextInt();
+      assertEquals(exactSettlement(amount, "0.8", "0.3", -1), service.toSettlement(amount, "KWD"));
+    }
+  }
+
+  @Test
+  void whenConvertedAmountIsExactlyHalfThenItIsRoundedUp() throws IOException {
+    // Given: Rates for which 881 centimes are exactly 789.5 pence
+    FxRateService service = service(rates("USD,1", "GBP,0.7895", "CHF,0.881", "ZAR,18.4512"));
+
+    // Then: Ties round away from zero rather than whichever way the binary factor leans
+    assertEquals(790, service.toSettlement(881, "CHF"));
+    assertEquals(-790, service.toSettlement(-881, "CHF"));
+    assertEquals(exactSettlement(130339880, "0.7895", "18.4512", 0),
+        service.toSettlement(130339880, "ZAR"));
+
+    // And: Multiples of the tie amount, where ties are dense, match exact decimal arithmetic
+    Random random = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      int amount = random.nextInt(Integer.MAX_VALUE / 881) * 881 + random.nextInt(2);
+      assertEquals(exactSettlement(amount, "0.7895", "0.881", 0),
+          service.toSettlement(amount, "CHF"));
+      assertEquals(exactSettlement(amount, "0.7895", "18.4512", 0),
+          service.toSettlement(amount, "ZAR"));
+    }
+  }
+
+  @Test
+  void whenRatesAreRefreshedThenTheNewSnapshotReplacesTheOldOne() throws IOException {
+    // Given: A service loaded with one set of rates
+    Path file = rates("USD,1", "GBP,0.8");
+    FxRateService service = service(file);
+    assertEquals(800, service.toSettlement(1000, "USD"));
+
+    // When: The file changes and is reloaded
+    Files.write(file, List.of("USD,1", "GBP,0.75"));
+    assertTrue(service.refresh());
+
+    // Then: The new rate is used
+    assertEquals(750, service.toSettlement(1000, "USD"));
+
+    // When: The file is broken the current rates are kept
+    Files.write(file, List.of("USD,1", "GBP,not-a-rate"));
+    assertFalse(service.refresh());
+    assertEquals(750, service.toSettlement(1000, "USD"));
+    Files.write(file, List.of("USD,1.000000000000000000001", "GBP,0.75"));
+    assertFalse(service.refresh());
+    assertEquals(750, service.toSettlement(1000, "USD"));
+
+    // Then: Once they expire without a successful reload no settlement amount is given
+    clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+    assertEquals(FxRateService.NO_RATE, service.toSettlement(1000, "USD"));
+  }
+
+  @Test
+  void whenSettlementCurrencyIsNotIsoThenServiceIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new FxRateService(registry, "XAU",
+        tempDir.resolve("rates.csv"), TimeUnit.HOURS.toNanos(1), TimeUnit.MINUTES.toNanos(5),
+        clock::get));
+  }
+
+  @Test
+  @Tag("benchmark")
+  void lookupAndConversionCostPerCall() throws IOException {
+    FxRateService service = service(rates("USD,1", "GBP,0.7895", "EUR,0.9235", "JPY,151.35",
+        "KWD,0.3075", "IDR,15890"));
+    String[] codes = {"USD", "eur", "JPY", "KWD", "IDR", "GBP", "XAU", "XYZ"};
+    int iterations = Integer.getInteger("benchmark.fx.iterations", 20_000_000);
+
+    // Warm up both paths before timing them
+    long sink = 0;
+    for (int i = 0; i < 2_000_000; i++) {
+      sink += registry.minorUnits(codes[i & 7]) + service.toSettlement(i, codes[i & 7]);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink += registry.minorUnits(codes[i & 7]);
+    }
+    long lookupNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink += service.toSettlement(i, codes[i & 3]);
+    }
+    long conversionNanos = System.nanoTime() - start;
+
+    LOG.info("{} calls each: {} ns per currency lookup, {} ns per conversion (checksum {})",
+        iterations, String.format("%.2f", (double) lookupNanos / iterations),
+        String.format("%.2f", (double) conversionNanos / iterations), sink);
+  }
+
+  private FxRateService service(Path file) {
+    FxRateService service = new FxRateService(registry, "GBP", file, TimeUnit.HOURS.toNanos(1),
+        TimeUnit.MINUTES.toNanos(5), clock::get);
+    assertTrue(service.refresh());
+    return service;
+  }
+
+  // amount * settlementRate / rate, moved by the difference in minor units, rounded half up
+  private static long exactSettlement(int amount, String settlementRate, String rate,
+      int minorUnitsShift) {
+    return new BigDecimal(settlementRate).multiply(BigDecimal.valueOf(amount))
+        .scaleByPowerOfTen(minorUnitsShift)
+        .divide(new BigDecimal(rate), 0, RoundingMode.HALF_UP)
+        .longValueExact();
+  }
+
+  private Path rates(String... lines) throws IOException {
+    return Files.write(tempDir.resolve("rates.csv"), List.of(lines));
+  }
+}
@@ -0,0 +1,162 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.AggregateStatistics;
+import com.checkout.payment.gateway.model.PaymentStatisticsResponse;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.StatusStatistics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class PaymentStatisticsServiceTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PaymentStatisticsServiceTest.class);
+
+  private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+  private final PaymentStatisticsService service = new PaymentStatisticsService("GBP", clock::get);
+
+  @Test
+  void whenPaymentsAreRecordedThenCurrencyAndCardBucketAggregatesAreUpdated() {
+    // Given: Three authorized and one declined payment across two currencies
+    service.record(payment(PaymentStatus.AUTHORIZED, "USD", "1111", 1000, 800L));
+    service.record(payment(PaymentStatus.AUTHORIZED, "USD", "2221", 500, 400L));
+    service.record(payment(PaymentStatus.DECLINED, "USD", "4442", 700, 560L));
+    service.record(payment(PaymentStatus.AUTHORIZED, "GBP", "3333", 200, 200L));
+    service.recordRejected();
+
+    // When: We read the statistics
+    PaymentStatisticsResponse statistics = service.getStatistics();
+
+    // Then: Volumes, counts and approval rates are broken down by key
+    AggregateStatistics usd = statistics.getCurrencies().get("USD");
+    StatusStatistics usdAuthorized = usd.getStatuses().get("Authorized");
+    assertEquals(2, usdAuthorized.getCount());
+    assertEquals(1500, usdAuthorized.getVolume());
+    assertEquals(1500L, usdAuthorized.getWindowVolumes().get("1m"));
+    assertEquals(2.0 / 3, usd.getApprovalRate(), 1e-9);
+
+    assertEquals("USD", usd.getVolumeCurrency());
+
+    StatusStatistics bucketOneAuthorized =
+        statistics.getCardBuckets().get("1").getStatuses().get("Authorized");
+    assertEquals(2, bucketOneAuthorized.getCount());
+    assertEquals(1200, bucketOneAuthorized.getVolume());
+    assertEquals(1,
+        statistics.getCardBuckets().get("2").getStatuses().get("Declined").getCount());
+    assertNull(statistics.getCardBuckets().get("0").getApprovalRate());
+
+    assertEquals(1, statistics.getTotal().getStatuses().get("Rejected").getCount());
+    assertEquals(0, statistics.getTotal().getStatuses().get("Rejected").getVolume());
+    assertEquals(0, usd.getStatuses().get("Rejected").getCount());
+
+    // And: Volumes that span currencies are in settlement minor units, not summed across
+    // currencies, and a payment without an FX rate adds to the count only
+    service.record(payment(PaymentStatus.AUTHORIZED, "JPY", "5555", 15000, null));
+    AggregateStatistics total = service.getStatistics().getTotal();
+    assertEquals("GBP", total.getVolumeCurrency());
+    assertEquals(4, total.getStatuses().get("Authorized").getCount());
+    assertEquals(1400, total.getStatuses().get("Authorized").getVolume());
+    assertEquals(1400L, total.getStatuses().get("Authorized").getWindowVolumes().get("1m"));
+
+    // And: Only authorization outcomes are reported, not later lifecycle states
+    assertEquals(List.of("Authorized", "Declined", "Rejected"),
+        new ArrayList<>(usd.getStatuses().keySet()));
+  }
+
+  @Test
+  void whenTimePassesThenOldPaymentsLeaveTheShorterWindows() {
+    // Given: One payment recorded now
+    service.record(payment(PaymentStatus.AUTHORIZED, "EUR", "1234", 100, 85L));
+
+    // When: Two minutes pass and another payment is recorded
+    clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+    service.record(payment(PaymentStatus.AUTHORIZED, "EUR", "1234", 300, 255L));
+
+    // Then: The 1m window only holds the newer payment while the others hold both
+    StatusStatistics eur = service.getStatistics().getCurrencies().get("EUR")
+        .getStatuses().get("Authorized");
+    assertEquals(1L, eur.getWindowCounts().get("1m"));
+    assertEquals(300L, eur.getWindowVolumes().get("1m"));
+    assertEquals(2L, eur.getWindowCounts().get("5m"));
+    assertEquals(2L, eur.getWindowCounts().get("1h"));
+    assertEquals(2, eur.getCount());
+
+    // And: After an hour everything has left the windows but the cumulative totals remain
+    clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+    eur = service.getStatistics().getCurrencies().get("EUR").getStatuses().get("Authorized");
+    assertEquals(0L, eur.getWindowCounts().get("1h"));
+    assertEquals(2, eur.getCount());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void recordingOverhead() throws Exception {
+    PaymentStatisticsService statistics = new PaymentStatisticsService("GBP", System::nanoTime);
+    int threads = Integer.getInteger("benchmark.statistics.threads", 8);
+    int perThread = Integer.getInteger("benchmark.statistics.payments", 2_000_000);
+    String[] currencies = {"USD", "EUR", "GBP"};
+    PaymentStatus[] statuses = {PaymentStatus.AUTHORIZED, PaymentStatus.AUTHORIZED,
+        PaymentStatus.DECLINED};
+    PostPaymentResponse[] payments = new PostPaymentResponse[1024];
+    for (int i = 0; i < payments.length; i++) {
+      payments[i] = payment(statuses[i % 3], currencies[i % currencies.length],
+          String.format("%04d", i), 100 + i, 80L + i);
+    }
+
+    // Warm up
+    for (int i = 0; i < 1_000_000; i++) {
+      statistics.record(payments[i & 1023]);
+    }
+
+    // When: Many threads record payments at full speed
+    List<Thread> workers = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      Thread worker = new Thread(() -> {
+        for (int i = 0; i < perThread; i++) {
+          statistics.record(payments[(i + offset) & 1023]);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    // Then: Report the per-payment cost against the 20us budget a 50k payments/s rate allows
+    long total = (long) threads * perThread;
+    double nanosPerRecord = (double) elapsed * Math.min(threads,
+        Runtime.getRuntime().availableProcessors()) / total;
+    LOG.info("Recorded {} payments on {} threads in {} ms: {} payments/s, ~{} ns CPU per record"
+            + " ({}% of the 20000 ns per-payment budget at 50k payments/s)", total, threads,
+        elapsed / 1_000_000, total * 1_000_000_000L / elapsed, Math.round(nanosPerRecord),
+        String.format("%.3f", nanosPerRecord / 200));
+    assertTrue(total * 1_000_000_000L / elapsed > 50_000);
+  }
+
+  private static PostPaymentResponse payment(PaymentStatus status, String currency,
+      String lastFour, int amount, Long settlementAmount) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(status);
+    payment.setCurrency(currency);
+    payment.setCardNumberLastFour(lastFour);
+    payment.setAmount(amount);
+    payment.setSettlementAmount(settlementAmount);
+    return payment;
+  }
+}
@@ -0,0 +1,306 @@
+package com.checkout.payment.gateway.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.exception.EventProcessingException;
+import com.checkout.payment.gateway.exception.ReconciliationInProgressException;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.checkout.payment.gateway.model.ReconciliationReport;
+import com.checkout.payment.gateway.repository.PaymentsRepository;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class SettlementReconciliationServiceTest {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(SettlementReconciliationServiceTest.class);
+
+  @TempDir
+  Path tempDir;
+
+  private PaymentsRepository paymentsRepository;
+
+  @BeforeEach
+  void setUp() {
+    paymentsRepository = new PaymentsRepository();
+  }
+
+  @Test
+  void whenSettlementFileIsReconciledThenEachEntryIsClassified() throws Exception {
+    // Given: Four stored authorizations, one of which the acquirer never settled
+    storeAuthorization("auth-matched", 1050, "USD");
+    storeAuthorization("auth-wrong-amount", 2000, "GBP");
+    storeAuthorization("auth-wrong-currency", 3000, "EUR");
+    storeAuthorization("auth-missing", 4000, "USD");
+
+    Path file = tempDir.resolve("settlement.csv");
+    Files.writeString(file, """
+        auth-matched,1050,USD
+        auth-wrong-amount,1999,GBP
+        auth-wrong-currency,3000,USD\r
+        auth-unknown,500,EUR
+        not-a-settlement-line
+
+        """);
+
+    // When: We reconcile the file using tiny chunks so lines fall across chunk boundaries
+    SettlementReconciliationService service =
+        new SettlementReconciliationService(paymentsRepository, 3, 7, 10, tempDir.toString());
+    ReconciliationReport report = service.reconcile(file);
+
+    // Then: Every line and every stored authorization is accounted for
+    assertEquals(5, report.getTotalLines());
+    assertEquals(1, report.getMatched());
+    assertEquals(2, report.getAmountMismatched());
+    assertEquals(1, report.getUnknown());
+    assertEquals(1, report.getMalformed());
+    assertEquals(1, report.getMissing());
+    assertTrue(report.getMissingAuthorizationCodes().contains("auth-missing"));
+    assertTrue(report.getUnknownAuthorizationCodes().contains("auth-unknown"));
+    assertTrue(report.getAmountMismatchedAuthorizationCodes().contains("auth-wrong-currency"));
+  }
+
+  @Test
+  void whenSettlementFileIsEmptyThenAllAuthorizationsAreMissing() throws Exception {
+    // Given: A stored authorization and an empty settlement file
+    storeAuthorization("auth-1", 100, "USD");
+    Path file = Files.createFile(tempDir.resolve("empty.csv"));
+
+    // When: We reconcile the file
+    ReconciliationReport report =
+        new SettlementReconciliationService(paymentsRepository, 2, 1024, 10, tempDir.toString())
+            .reconcile(file);
+
+    // Then: Nothing matched and the authorization is reported missing
+    assertEquals(0, report.getTotalLines());
+    assertEquals(1, report.getMissing());
+  }
+
+  @Test
+  void whenPaymentsWereCapturedOrVoidedThenSettledAmountFollowsTheLifecycle() throws Exception {
+    // Given: A partially captured, a captured then partly refunded, and a voided authorization
+    UUID partiallyCaptured = storeAuthorization("auth-partial", 1000, "USD");
+    paymentsRepository.capture(partiallyCaptured, 400);
+    UUID refunded = storeAuthorization("auth-refunded", 1000, "USD");
+    paymentsRepository.capture(refunded, 1000);
+    paymentsRepository.refund(refunded, 300);
+    UUID voided = storeAuthorization("auth-voided", 1000, "USD");
+    paymentsRepository.voidAuthorization(voided);
+    UUID settledVoid = storeAuthorization("auth-voided-but-settled", 1000, "USD");
+    paymentsRepository.voidAuthorization(settledVoid);
+
+    Path file = tempDir.resolve("settlement.csv");
+    Files.writeString(file, """
+        auth-partial,400,USD
+        auth-refunded,700,USD
+        auth-voided-but-settled,1000,USD
+        """);
+
+    // When: We reconcile the file
+    ReconciliationReport report =
+        new SettlementReconciliationService(paymentsRepository, 2, 1024, 10, tempDir.toString())
+            .reconcile(file);
+
+    // Then: Captured-minus-refunded amounts match, the unsettled void is not missing, and the
+    // settled void is flagged
+    assertEquals(2, report.getMatched());
+    assertEquals(0, report.getMissing());
+    assertEquals(1, report.getAmountMismatched());
+    assertEquals(List.of("auth-voided-but-settled"),
+        report.getAmountMismatchedAuthorizationCodes());
+  }
+
+  @Test
+  void whenCaptureWasFullyRefundedThenItIsNotMissing() throws Exception {
+    // Given: An authorization captured and then refunded in full, and one still expected to settle
+    UUID refunded = storeAuthorization("auth-fully-refunded", 1000, "USD");
+    paymentsRepository.capture(refunded, 1000);
+    paymentsRepository.refund(refunded, 1000);
+    storeAuthorization("auth-unsettled", 500, "USD");
+
+    Path file = tempDir.resolve("settlement.csv");
+    Files.writeString(file, "");
+
+    // When: We reconcile a file that settles neither
+    ReconciliationReport report =
+        new SettlementReconciliationService(paymentsRepository, 2, 1024, 10, tempDir.toString())
+            .reconcile(file);
+
+    // Then: Only the authorization that still owes a settlement is missing
+    assertEquals(1, report.getMissing());
+    assertEquals(List.of("auth-unsettled"), report.getMissingAuthorizationCodes());
+  }
+
+  @Test
+  void whenAuthorizationIsSettledTwiceThenRepeatsAreCountedAsDuplicates() throws Exception {
+    // Given: An authorization the acquirer settled three times
+    storeAuthorization("auth-1", 1050, "USD");
+    storeAuthorization("auth-2", 2000, "GBP");
+    Files.writeString(tempDir.resolve("settlement.csv"), """
+        auth-1,1050,USD
+        auth-2,2000,GBP
+        auth-1,1050,USD
+        auth-1,1050,USD
+        """);
+
+    // When: We reconcile the file by name from the settlement directory
+    ReconciliationReport report =
+        new SettlementReconciliationService(paymentsRepository, 2, 16, 10, tempDir.toString())
+            .reconcile("settlement.csv");
+
+    // Then: Each authorization is matched once and the repeats are reported separately
+    assertEquals(4, report.getTotalLines());
+    assertEquals(2, report.getMatched());
+    assertEquals(2, report.getDuplicated());
+    assertEquals(List.of("auth-1", "auth-1"), report.getDuplicatedAuthorizationCodes());
+    assertEquals(0, report.getMissing());
+  }
+
+  @Test
+  void whenDuplicateHasAnotherAmountThenTheFirstLineInTheFileDecides() throws Exception {
+    // Given: Two authorizations settled twice, each with a differing amount on one of the lines,
+    // and filler lines in between so the repeats land in other chunks
+    storeAuthorization("auth-first-matches", 1050, "USD");
+    storeAuthorization("auth-first-differs", 2000, "USD");
+    StringBuilder contents = new StringBuilder("auth-first-matches,1050,USD\n")
+        .append("auth-first-differs,2001,USD\n");
+    for (int i = 0; i < 50; i++) {
+      contents.append("filler-").append(i).append(",100,USD\n");
+    }
+    contents.append("auth-first-matches,9999,USD\n").append("auth-first-differs,2000,USD\n");
+    Path file = Files.writeString(tempDir.resolve("settlement.csv"), contents);
+
+    // When: We reconcile it repeatedly with small chunks parsed by several threads
+    SettlementReconciliationService service =
+        new SettlementReconciliationService(paymentsRepository, 4, 64, 10, tempDir.toString());
+    for (int run = 0; run < 50; run++) {
+      ReconciliationReport report = service.reconcile(file);
+
+      // Then: Whichever chunk is parsed first, each authorization is classified by its first line
+      assertEquals(1, report.getMatched());
+      assertEquals(1, report.getAmountMismatched());
+      assertEquals(List.of("auth-first-differs"), report.getAmountMismatchedAuthorizationCodes());
+      assertEquals(2, report.getDuplicated());
+      assertEquals(50, report.getUnknown());
+    }
+  }
+
+  @Test
+  void whenFileIsOutsideSettlementDirectoryThenItIsRefused() throws Exception {
+    // Given: A settlement directory and a file next to it
+    Path directory = Files.createDirectory(tempDir.resolve("settlements"));
+    Files.writeString(tempDir.resolve("outside.csv"), "auth-1,1050,USD\n");
+    SettlementReconciliationService service =
+        new SettlementReconciliationService(paymentsRepository, 2, 1024, 10, directory.toString());
+
+    // Then: Names escaping the directory, and files that do not exist, are refused
+    assertThrows(EventProcessingException.class, () -> service.reconcile("../outside.csv"));
+    assertThrows(EventProcessingException.class, () -> service.reconcile("missing.csv"));
+  }
+
+  @Test
+  void whenReconciliationIsRunningThenAnotherOneIsRefused() throws Exception {
+    // Given: A reconciliation held up while it looks up its only line
+    CountDownLatch lookingUp = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    paymentsRepository = new PaymentsRepository() {
+      @Override
+      public Optional<PostPaymentResponse> getByAuthorizationCode(String authorizationCode) {
+        lookingUp.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getByAuthorizationCode(authorizationCode);
+      }
+    };
+    storeAuthorization("auth-1", 1050, "USD");
+    Path file = Files.writeString(tempDir.resolve("settlement.csv"), "auth-1,1050,USD\n");
+    SettlementReconciliationService service =
+        new SettlementReconciliationService(paymentsRepository, 2, 1024, 10, tempDir.toString());
+    CompletableFuture<ReconciliationReport> first =
+        CompletableFuture.supplyAsync(() -> service.reconcile(file));
+    assertTrue(lookingUp.await(10, TimeUnit.SECONDS));
+
+    // When/Then: A second run is refused while the first is in progress
+    assertThrows(ReconciliationInProgressException.class, () -> service.reconcile(file));
+
+    // And: Once the first finishes another run is accepted
+    release.countDown();
+    assertEquals(1, first.get(10, TimeUnit.SECONDS).getMatched());
+    assertEquals(1, service.reconcile(file).getMatched());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void settlementReconciliationThroughput() throws Exception {
+    int authorizations = Integer.getInteger("benchmark.reconciliation.authorizations", 2_000_000);
+    // Capped so no line repeats an authorization and takes the duplicate path instead of matching
+    int lines = Math.min(authorizations,
+        Integer.getInteger("benchmark.reconciliation.lines", authorizations));
+
+    // Given: A large set of stored authorizations and a generated settlement file with one line
+    // per authorization, in which most lines match, every 100th has the wrong amount and every
+    // 1000th is unknown
+    for (int i = 0; i < authorizations; i++) {
+      storeAuthorization(authorizationCode(i), 1000 + i % 5000, "USD");
+    }
+    Path file = tempDir.resolve("settlement-benchmark.csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+      for (int i = 0; i < lines; i++) {
+        String code = i % 1000 == 0 ? "unknown-" + i : authorizationCode(i);
+        int amount = 1000 + i % 5000 + (i % 100 == 1 ? 1 : 0);
+        writer.write(code + "," + amount + ",USD\n");
+      }
+    }
+    SettlementReconciliationService service =
+        new SettlementReconciliationService(paymentsRepository, 0, 64L * 1024 * 1024, 100,
+            tempDir.toString());
+
+    // When: We reconcile it, discarding a warm-up run
+    service.reconcile(file);
+    ReconciliationReport report = service.reconcile(file);
+
+    // Then: Report the sustained throughput
+    assertEquals(lines, report.getTotalLines());
+    assertEquals(0, report.getDuplicated());
+    long elapsedMillis = Math.max(1, report.getElapsedMillis());
+    LOG.info("Reconciled {} lines ({} MB) in {} ms: {} lines/s, {}", lines,
+        Files.size(file) / (1024 * 1024), elapsedMillis, lines * 1000L / elapsedMillis, report);
+  }
+
+  private UUID storeAuthorization(String authorizationCode, int amount, String currency) {
+    PostPaymentResponse payment = new PostPaymentResponse();
+    payment.setId(UUID.randomUUID());
+    payment.setStatus(PaymentStatus.AUTHORIZED);
+    payment.setCardNumberLastFour("4321");
+    payment.setAmount(amount);
+    payment.setCurrency(currency);
+    payment.setAuthorizationCode(authorizationCode);
+    paymentsRepository.add(payment);
+    return payment.getId();
+  }
+
+  private static String authorizationCode(int index) {
+    return new UUID(0x5e771e0000000000L, index).toString();
+  }
+}
@@ -0,0 +1,219 @@
+package com.checkout.payment.gateway.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PaymentLifecycleState;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class TrafficCaptureServiceTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TrafficCaptureServiceTest.class);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenTrafficIsCapturedThenItCanBeReadBackWithoutCardSecrets() throws Exception {
+    // Given: Capture is enabled
+    Path file = tempDir.resolve("capture.bin");
+    TrafficCaptureService capture = new TrafficCaptureService(true, file.toString(), 1024);
+    capture.start();
+
+    // When: Two payments with the same card, an invalid one and a lookup after a capture are
+    // captured
+    PostPaymentResponse authorized = response(PaymentStatus.AUTHORIZED);
+    capture.recordPayment(System.nanoTime(), request("4111111111111111", 123), 200, authorized);
+    authorized.setAmount(1050);
+    authorized.compareAndSetLifecycleState(0, PaymentLifecycleState.of(1050, 0, false));
+    capture.recordPayment(System.nanoTime(), request("4111111111111111", 4567), 200,
+        response(PaymentStatus.DECLINED));
+    capture.recordPayment(System.nanoTime(), request("41x1", 12), 400, null);
+    capture.recordGet(System.nanoTime(), authorized.getId(), 200, authorized);
+    capture.stop();
+
+    // Then: The log replays the same mix, but neither the card number nor the CVV was written
+    String contents = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+    assertFalse(contents.contains("4111111111111111"));
+    assertFalse(contents.contains("41x1"));
+
+    List<TrafficRecord> records = TrafficReplayTool.load(file);
+    assertEquals(4, records.size());
+    TrafficRecord first = records.get(0);
+    assertTrue(first.isPayment());
+    assertEquals(200, first.httpStatus);
+    assertEquals(authorized.getId(), first.paymentId);
+    assertEquals("USD", first.currency);
+    assertEquals(1050, first.amount);
+    assertEquals(3, first.cvvLength);
+    assertEquals(first.panToken, records.get(1).panToken);
+    assertEquals(4, records.get(1).cvvLength);
+    assertTrue(records.get(0).arrivalNanos <= records.get(1).arrivalNanos);
+
+    String replayedCard = TrafficLog.replayCardNumber(first);
+    assertEquals(16, replayedCard.length());
+    assertTrue(replayedCard.endsWith("1111"));
+    assertTrue(replayedCard.chars().allMatch(Character::isDigit));
+    assertEquals(123, TrafficLog.replayCvv(first));
+
+    TrafficRecord invalid = records.get(2);
+    assertEquals(TrafficLog.PAN_OTHER, invalid.panKind);
+    assertEquals("xxxx", TrafficLog.replayCardNumber(invalid));
+    assertNull(invalid.paymentStatus);
+    assertNull(invalid.paymentId);
+
+    TrafficRecord lookup = records.get(3);
+    assertFalse(lookup.isPayment());
+    assertEquals(authorized.getId(), lookup.paymentId);
+
+    // And: The lookup holds the authorization outcome, as the capture is not replayed
+    assertEquals(PaymentStatus.CAPTURED, authorized.getStatus());
+    assertEquals(PaymentStatus.AUTHORIZED, lookup.paymentStatus);
+  }
+
+  @Test
+  void whenRequestsCompleteOutOfOrderThenTheyAreLoadedInArrivalOrder() throws Exception {
+    // Given: A payment that waits on the bank while a lookup and a reject arrive and finish
+    Path file = tempDir.resolve("out-of-order.bin");
+    TrafficCaptureService capture = new TrafficCaptureService(true, file.toString(), 1024);
+    capture.start();
+    long paymentArrival = System.nanoTime();
+    PostPaymentResponse payment = response(PaymentStatus.AUTHORIZED);
+    capture.recordGet(paymentArrival + 1_000_000, payment.getId(), 404, null);
+    capture.recordPayment(paymentArrival + 2_000_000, request("41x1", 12), 400, null);
+    capture.recordPayment(paymentArrival, request("4111111111111111", 123), 200, payment);
+    capture.stop();
+
+    // When: The log is loaded for replay
+    List<TrafficRecord> records = TrafficReplayTool.load(file);
+
+    // Then: The payment comes first because it arrived first, even though it was written last
+    assertEquals(3, records.size());
+    assertEquals(payment.getId(), records.get(0).paymentId);
+    assertTrue(records.get(0).isPayment());
+    assertFalse(records.get(1).isPayment());
+    assertEquals(400, records.get(2).httpStatus);
+    assertTrue(records.get(0).arrivalNanos < records.get(1).arrivalNanos);
+    assertTrue(records.get(1).arrivalNanos < records.get(2).arrivalNanos);
+  }
+
+  @Test
+  void whenCaptureIsDisabledThenNothingIsWritten() throws Exception {
+    // Given: Capture is disabled
+    Path file = tempDir.resolve("disabled.bin");
+    TrafficCaptureService capture = new TrafficCaptureService(false, file.toString(), 1024);
+    capture.start();
+
+    // When: A request is recorded
+    capture.recordPayment(System.nanoTime(), request("4111111111111111", 123), 200, null);
+    capture.stop();
+
+    // Then: No log is created
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  void whenManyProducersOfferThenEveryElementIsPolledExactlyOnce() throws Exception {
+    // Given: A small ring buffer shared by several producers
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+    int producers = 4;
+    int perProducer = 100_000;
+    AtomicLongArray seen = new AtomicLongArray(producers * perProducer);
+
+    // When: Producers spin until each element is accepted while one consumer drains
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      Thread producer = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(base + i)) {
+            Thread.onSpinWait();
+          }
+        }
+      });
+      threads.add(producer);
+      producer.start();
+    }
+    int received = 0;
+    while (received < producers * perProducer) {
+      Integer element = buffer.poll();
+      if (element != null) {
+        seen.incrementAndGet(element);
+        received++;
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // Then: Nothing was lost or duplicated and the buffer is empty
+    for (int i = 0; i < seen.length(); i++) {
+      assertEquals(1, seen.get(i));
+    }
+    assertNull(buffer.poll());
+    for (int i = 0; i < 64; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertFalse(buffer.offer(64));
+    assertNotNull(buffer.poll());
+  }
+
+  @Test
+  @Tag("benchmark")
+  void captureOverheadOnTheRequestPath() throws Exception {
+    Path file = tempDir.resolve("benchmark.bin");
+    TrafficCaptureService capture = new TrafficCaptureService(true, file.toString(), 1 << 16);
+    capture.start();
+    PostPaymentRequest request = request("4111111111111111", 123);
+    PostPaymentResponse response = response(PaymentStatus.AUTHORIZED);
+    int iterations = Integer.getInteger("benchmark.capture.requests", 2_000_000);
+
+    for (int i = 0; i < 200_000; i++) {
+      capture.recordPayment(System.nanoTime(), request, 200, response);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      capture.recordPayment(start, request, 200, response);
+    }
+    long elapsed = System.nanoTime() - start;
+    capture.stop();
+
+    // Requests the writer could not keep up with are dropped, see the capture summary log line
+    LOG.info("Offered {} requests to the capture: {} ns per request on the request thread,"
+        + " log is {} bytes", iterations, elapsed / iterations, Files.size(file));
+  }
+
+  private static PostPaymentRequest request(String cardNumber, int cvv) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryDate("12/2030");
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(cvv);
+    return request;
+  }
+
+  private static PostPaymentResponse response(PaymentStatus status) {
+    PostPaymentResponse response = new PostPaymentResponse();
+    response.setId(UUID.randomUUID());
+    response.setStatus(status);
+    return response;
+  }
+}
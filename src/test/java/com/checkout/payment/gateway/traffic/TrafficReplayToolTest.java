@@ -0,0 +1,150 @@
+package com.checkout.payment.gateway.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.checkout.payment.gateway.enums.PaymentStatus;
+import com.checkout.payment.gateway.model.PostPaymentRequest;
+import com.checkout.payment.gateway.model.PostPaymentResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrafficReplayToolTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenLogIsReplayedThenDivergencesFromTheRecordedResponsesAreCounted() throws Exception {
+    // Given: A log of two payments, a rejected request and three lookups
+    Path file = tempDir.resolve("capture.bin");
+    TrafficCaptureService capture = new TrafficCaptureService(true, file.toString(), 1024);
+    capture.start();
+    PostPaymentResponse authorized = response(PaymentStatus.AUTHORIZED);
+    PostPaymentResponse declined = response(PaymentStatus.DECLINED);
+    long arrival = System.nanoTime();
+    capture.recordPayment(arrival, request("4111111111111111"), 200, authorized);
+    capture.recordPayment(arrival + 1, request("4111111111111112"), 200, declined);
+    capture.recordPayment(arrival + 2, request("41x1"), 400, null);
+    capture.recordGet(arrival + 3, authorized.getId(), 200, authorized);
+    capture.recordGet(arrival + 4, declined.getId(), 200, declined);
+    capture.recordGet(arrival + 5, UUID.randomUUID(), 404, null);
+    capture.stop();
+
+    // And: A stub gateway that authorizes every payment and only knows the ids it handed out
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      if (exchange.getRequestMethod().equals("POST")) {
+        String id = UUID.randomUUID().toString();
+        ids.add(id);
+        respond(exchange, 200, "{\"id\":\"" + id + "\",\"status\":\"Authorized\"}");
+        return;
+      }
+      String id = exchange.getRequestURI().getPath().replace("/payment/", "");
+      if (ids.contains(id)) {
+        respond(exchange, 200, "{\"id\":\"" + id + "\",\"status\":\"Authorized\"}");
+      } else {
+        respond(exchange, 404, "{\"message\":\"Page not found\"}");
+      }
+    });
+    server.start();
+
+    try {
+      // When: The log is replayed against it as fast as possible
+      TrafficReplayTool tool = new TrafficReplayTool(
+          "http://127.0.0.1:" + server.getAddress().getPort(), 0, 4);
+      tool.replay(TrafficReplayTool.load(file));
+
+      // Then: The rejected request diverges on HTTP status, the declined payment and its lookup
+      // diverge on payment status, and the lookups follow the ids assigned during the replay
+      assertEquals(1, tool.statusDivergences());
+      assertEquals(2, tool.paymentStatusDivergences());
+      assertEquals(0, tool.failures());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void whenLogHasAnUnknownPaymentStatusOrVersionThenItIsNotLoaded() throws Exception {
+    // Given: A lookup record with a status code no version of the log has used
+    Path corrupt = tempDir.resolve("corrupt.bin");
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(corrupt))) {
+      TrafficLog.writeHeader(out, System.currentTimeMillis());
+      out.writeByte(TrafficLog.TYPE_GET);
+      out.writeLong(0);
+      out.writeLong(0);
+      out.writeShort(200);
+      out.writeByte(42);
+      out.writeBoolean(false);
+    }
+
+    // And: A log from the first version, which stored enum ordinals
+    Path firstVersion = tempDir.resolve("v1.bin");
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(firstVersion))) {
+      out.writeInt(TrafficLog.MAGIC);
+      out.writeByte(1);
+      out.writeLong(System.currentTimeMillis());
+    }
+
+    // Then: Neither is misread
+    assertThrows(IOException.class, () -> TrafficReplayTool.load(corrupt));
+    assertThrows(IOException.class, () -> TrafficReplayTool.load(firstVersion));
+  }
+
+  @Test
+  void whenLatenciesAreSummarisedThenNearestRankPercentilesAreReported() {
+    // Given: Latencies of 1 to 1000 ms in reverse order
+    long[] latencies = LongStream.rangeClosed(1, 1000)
+        .map(ms -> TimeUnit.MILLISECONDS.toNanos(1001 - ms))
+        .toArray();
+
+    // Then: Each percentile is the smallest latency at or above that share of requests
+    assertEquals("p50=500.00ms p90=900.00ms p99=990.00ms p99.9=999.00ms max=1000.00ms",
+        TrafficReplayTool.percentiles(latencies));
+    assertEquals("p50=7.00ms p90=7.00ms p99=7.00ms p99.9=7.00ms max=7.00ms",
+        TrafficReplayTool.percentiles(new long[]{TimeUnit.MILLISECONDS.toNanos(7)}));
+    assertEquals("no requests", TrafficReplayTool.percentiles(new long[0]));
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static PostPaymentRequest request(String cardNumber) {
+    PostPaymentRequest request = new PostPaymentRequest();
+    request.setCardNumber(cardNumber);
+    request.setExpiryDate("12/2030");
+    request.setCurrency("USD");
+    request.setAmount(1050);
+    request.setCvv(123);
+    return request;
+  }
+
+  private static PostPaymentResponse response(PaymentStatus status) {
+    PostPaymentResponse response = new PostPaymentResponse();
+    response.setId(UUID.randomUUID());
+    response.setStatus(status);
+    return response;
+  }
+}